@@ -0,0 +1,101 @@
+package com.tomgibara.intgeom.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.tomgibara.intgeom.IntCoords;
+import com.tomgibara.intgeom.IntRect;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IntRectBenchmark {
+
+	private IntRect a;
+	private IntRect b;
+	private IntCoords coords;
+	private int x;
+	private int y;
+	private IntRect grid;
+
+	@Setup
+	public void setup() {
+		Random random = new Random(0L);
+		a = IntRect.rectangle(random.nextInt(100), random.nextInt(100), 50 + random.nextInt(50), 50 + random.nextInt(50));
+		b = IntRect.rectangle(random.nextInt(100), random.nextInt(100), 50 + random.nextInt(50), 50 + random.nextInt(50));
+		x = random.nextInt(200);
+		y = random.nextInt(200);
+		coords = IntCoords.at(x, y);
+		grid = IntRect.atOrigin(64, 64);
+	}
+
+	@Benchmark
+	public boolean containsPoint() {
+		return a.containsPoint(x, y);
+	}
+
+	@Benchmark
+	public boolean containsPointCoords() {
+		return a.containsPoint(coords);
+	}
+
+	@Benchmark
+	public boolean containsUnit() {
+		return a.containsUnit(x, y);
+	}
+
+	@Benchmark
+	public boolean containsRect() {
+		return a.containsRect(b);
+	}
+
+	@Benchmark
+	public boolean intersectsRect() {
+		return a.intersectsRect(b);
+	}
+
+	@Benchmark
+	public IntRect growToIncludeRect() {
+		return a.growToIncludeRect(b);
+	}
+
+	@Benchmark
+	public IntRect intersectRect() {
+		return a.intersectRect(b);
+	}
+
+	@Benchmark
+	public int rowMajorIndex() {
+		return a.rowMajorIndex(coords);
+	}
+
+	@Benchmark
+	public void unitsInRowOrder(Blackhole blackhole) {
+		for (IntCoords unit : grid.unitsInRowOrder()) {
+			blackhole.consume(unit);
+		}
+	}
+
+	@Benchmark
+	public void unitsInColumnOrder(Blackhole blackhole) {
+		for (IntCoords unit : grid.unitsInColumnOrder()) {
+			blackhole.consume(unit);
+		}
+	}
+
+}
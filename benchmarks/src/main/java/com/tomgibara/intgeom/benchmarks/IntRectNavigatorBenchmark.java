@@ -0,0 +1,80 @@
+package com.tomgibara.intgeom.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.tomgibara.intgeom.IntDir;
+import com.tomgibara.intgeom.IntRect;
+import com.tomgibara.intgeom.IntRectNavigator;
+import com.tomgibara.intgeom.IntRectNavigator.Algorithm;
+import com.tomgibara.intgeom.IntRectNavigator.TaggedRect;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IntRectNavigatorBenchmark {
+
+	private static final int STARTS = 1024; // must be a power of two
+
+	private static final IntDir[] DIRS = IntDir.values();
+
+	@Param({"1000", "10000", "100000"})
+	public int size;
+
+	@Param
+	public Algorithm algorithm;
+
+	private List<TaggedRect<Integer>> rects;
+	private IntRectNavigator<Integer> navigator;
+	private IntRect[] starts;
+	private int index = 0;
+
+	@Setup
+	public void setup() {
+		Random random = new Random(0L);
+		// keep the density of rects constant as the size grows
+		int extent = (int) Math.sqrt(size) * 100;
+		rects = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			IntRect rect = IntRect.rectangle(random.nextInt(extent), random.nextInt(extent), 10 + random.nextInt(90), 10 + random.nextInt(90));
+			rects.add(new TaggedRect<>(rect, i));
+		}
+		navigator = new IntRectNavigator<>(rects, true);
+		starts = new IntRect[STARTS];
+		for (int i = 0; i < STARTS; i++) {
+			starts[i] = rects.get(random.nextInt(size)).rect;
+		}
+	}
+
+	@Benchmark
+	public Optional<TaggedRect<Integer>> findFrom() {
+		int i = index++;
+		return navigator.findFrom(starts[i & (STARTS - 1)], DIRS[i & 3], algorithm);
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public IntRectNavigator<Integer> build() {
+		return new IntRectNavigator<>(rects, true);
+	}
+
+}
@@ -0,0 +1,101 @@
+package com.tomgibara.intgeom.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.tomgibara.intgeom.IntAxis;
+import com.tomgibara.intgeom.IntCoords;
+import com.tomgibara.intgeom.IntPair;
+import com.tomgibara.intgeom.IntTransform;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IntTransformBenchmark {
+
+	// one transform for each combination of the flags that select a transform path
+	public enum Kind {
+
+		IDENTITY              (IntTransform.identity()),
+		SCALE                 (IntTransform.scale(2, 3)),
+		ROTATION              (IntTransform.rotateRightAngles(1)),
+		REFLECTION            (IntTransform.reflection(IntAxis.X)),
+		TRANSLATION           (IntTransform.translation(5, -7)),
+		SCALE_TRANSLATION     (IntTransform.scaleAbout(IntCoords.at(3, 4), 2, 3)),
+		ROTATION_TRANSLATION  (IntTransform.rotationAbout(IntCoords.at(3, 4), 1)),
+		REFLECTION_TRANSLATION(IntTransform.translation(5, -7).preApply(IntTransform.orientation(1, true))),
+		LINEAR                (IntTransform.components(2, 1, 1, 1, 0, 0)),
+		AFFINE                (IntTransform.components(2, 1, 1, 1, 5, -7));
+
+		final IntTransform transform;
+
+		private Kind(IntTransform transform) {
+			this.transform = transform;
+		}
+	}
+
+	private static final int COUNT = 1024;
+
+	@Param
+	public Kind kind;
+
+	private IntTransform transform;
+	private IntTransform other;
+	private long pair;
+	private IntCoords coords;
+	private long[] src;
+	private long[] dst;
+
+	@Setup
+	public void setup() {
+		transform = kind.transform;
+		other = IntTransform.rotationAbout(IntCoords.at(1, 2), 1);
+		Random random = new Random(0L);
+		pair = IntPair.fromInts(random.nextInt(1000), random.nextInt(1000));
+		coords = IntPair.toCoords(pair);
+		src = new long[COUNT];
+		for (int i = 0; i < COUNT; i++) {
+			src[i] = IntPair.fromInts(random.nextInt(1000), random.nextInt(1000));
+		}
+		dst = new long[COUNT];
+	}
+
+	@Benchmark
+	public long transformPair() {
+		return transform.transform(pair);
+	}
+
+	@Benchmark
+	public IntCoords transformCoords() {
+		return transform.transform(coords);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public long[] transformArray() {
+		transform.transform(src, 0, dst, 0, COUNT);
+		return dst;
+	}
+
+	@Benchmark
+	public IntTransform preApply() {
+		return transform.preApply(other);
+	}
+
+}
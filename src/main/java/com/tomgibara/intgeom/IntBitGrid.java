@@ -0,0 +1,235 @@
+package com.tomgibara.intgeom;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+import java.util.stream.LongStream;
+
+// a mutable set of the units in a rect, one bit per unit, rows padded to whole words
+public final class IntBitGrid {
+
+	// statics
+
+	private static final int ADDRESS_BITS = 6;
+	private static final int WORD_SIZE = 1 << ADDRESS_BITS;
+
+	// fields
+
+	public final IntRect bounds;
+
+	private final int width;
+	private final int height;
+	private final int wordsPerRow;
+	private final long[] words;
+
+	// constructors
+
+	public IntBitGrid(IntRect bounds) {
+		if (bounds == null) throw new IllegalArgumentException("null bounds");
+		long width = (long) bounds.maxX - bounds.minX;
+		long height = (long) bounds.maxY - bounds.minY;
+		if (width < 0 || height < 0) throw new IllegalArgumentException("invalid bounds");
+		if (width > Integer.MAX_VALUE || height > Integer.MAX_VALUE) throw new IllegalArgumentException("bounds too large");
+		long wordsPerRow = (width + WORD_SIZE - 1) >> ADDRESS_BITS;
+		long length = wordsPerRow * height;
+		if (length > Integer.MAX_VALUE - 8) throw new IllegalArgumentException("bounds too large");
+		this.bounds = bounds;
+		this.width = (int) width;
+		this.height = (int) height;
+		this.wordsPerRow = (int) wordsPerRow;
+		words = new long[(int) length];
+	}
+
+	// accessors
+
+	public boolean isClear() {
+		for (long word : words) {
+			if (word != 0L) return false;
+		}
+		return true;
+	}
+
+	public boolean test(int x, int y) {
+		checkUnit(x, y);
+		int dx = x - bounds.minX;
+		return (words[index(dx, y - bounds.minY)] & 1L << dx) != 0L;
+	}
+
+	public boolean test(long pair) {
+		return test(IntPair.xOf(pair), IntPair.yOf(pair));
+	}
+
+	// mutation
+
+	public void set(int x, int y) {
+		checkUnit(x, y);
+		int dx = x - bounds.minX;
+		words[index(dx, y - bounds.minY)] |= 1L << dx;
+	}
+
+	public void set(long pair) {
+		set(IntPair.xOf(pair), IntPair.yOf(pair));
+	}
+
+	public void clear(int x, int y) {
+		checkUnit(x, y);
+		int dx = x - bounds.minX;
+		words[index(dx, y - bounds.minY)] &= ~(1L << dx);
+	}
+
+	public void clear(long pair) {
+		clear(IntPair.xOf(pair), IntPair.yOf(pair));
+	}
+
+	public void set(int x, int y, boolean value) {
+		if (value) set(x, y); else clear(x, y);
+	}
+
+	public void set(long pair, boolean value) {
+		set(IntPair.xOf(pair), IntPair.yOf(pair), value);
+	}
+
+	public void clearAll() {
+		Arrays.fill(words, 0L);
+	}
+
+	// sets every unit of the rect that lies within the bounds
+	public void fill(IntRect rect) {
+		apply(rect, true);
+	}
+
+	// clears every unit of the rect that lies within the bounds
+	public void clear(IntRect rect) {
+		apply(rect, false);
+	}
+
+	// aggregates
+
+	public long count() {
+		long count = 0L;
+		for (long word : words) {
+			count += Long.bitCount(word);
+		}
+		return count;
+	}
+
+	// counts the set units of the rect that lie within the bounds
+	public long count(IntRect rect) {
+		if (rect == null) throw new IllegalArgumentException("null rect");
+		if (!bounds.intersectsRect(rect)) return 0L;
+		IntRect r = bounds.intersectRect(rect);
+		if (r.isDegenerate()) return 0L;
+		int fromX = r.minX - bounds.minX;
+		int toX = r.maxX - bounds.minX;
+		int fromWord = fromX >> ADDRESS_BITS;
+		int toWord = (toX - 1) >> ADDRESS_BITS;
+		long firstMask = -1L << fromX;
+		long lastMask = -1L >>> -toX;
+		long count = 0L;
+		for (int dy = r.minY - bounds.minY; dy < r.maxY - bounds.minY; dy++) {
+			int row = dy * wordsPerRow;
+			if (fromWord == toWord) {
+				count += Long.bitCount(words[row + fromWord] & firstMask & lastMask);
+			} else {
+				count += Long.bitCount(words[row + fromWord] & firstMask);
+				for (int w = fromWord + 1; w < toWord; w++) {
+					count += Long.bitCount(words[row + w]);
+				}
+				count += Long.bitCount(words[row + toWord] & lastMask);
+			}
+		}
+		return count;
+	}
+
+	// the set units as IntPair values in row order
+	public LongStream setUnits() {
+		return LongStream.range(0, words.length).flatMap(i -> {
+			long word = words[(int) i];
+			if (word == 0L) return LongStream.empty();
+			int row = (int) i / wordsPerRow;
+			int x = bounds.minX + ((int) i - row * wordsPerRow << ADDRESS_BITS);
+			int y = bounds.minY + row;
+			LongStream.Builder builder = LongStream.builder();
+			while (word != 0L) {
+				builder.accept(IntPair.fromInts(x + Long.numberOfTrailingZeros(word), y));
+				word &= word - 1;
+			}
+			return builder.build();
+		});
+	}
+
+	// supplies the set units as IntPair values in row order
+	public void forEachSetUnit(LongConsumer consumer) {
+		if (consumer == null) throw new IllegalArgumentException("null consumer");
+		for (int dy = 0, row = 0; dy < height; dy++, row += wordsPerRow) {
+			int y = bounds.minY + dy;
+			for (int w = 0; w < wordsPerRow; w++) {
+				long word = words[row + w];
+				int x = bounds.minX + (w << ADDRESS_BITS);
+				while (word != 0L) {
+					consumer.accept(IntPair.fromInts(x + Long.numberOfTrailingZeros(word), y));
+					word &= word - 1;
+				}
+			}
+		}
+	}
+
+	private void apply(IntRect rect, boolean value) {
+		if (rect == null) throw new IllegalArgumentException("null rect");
+		if (!bounds.intersectsRect(rect)) return;
+		IntRect r = bounds.intersectRect(rect);
+		if (r.isDegenerate()) return;
+		int fromX = r.minX - bounds.minX;
+		int toX = r.maxX - bounds.minX;
+		int fromWord = fromX >> ADDRESS_BITS;
+		int toWord = (toX - 1) >> ADDRESS_BITS;
+		long firstMask = -1L << fromX;
+		long lastMask = -1L >>> -toX;
+		for (int dy = r.minY - bounds.minY; dy < r.maxY - bounds.minY; dy++) {
+			int row = dy * wordsPerRow;
+			if (fromWord == toWord) {
+				apply(row + fromWord, firstMask & lastMask, value);
+			} else {
+				apply(row + fromWord, firstMask, value);
+				if (toWord > fromWord + 1) Arrays.fill(words, row + fromWord + 1, row + toWord, value ? -1L : 0L);
+				apply(row + toWord, lastMask, value);
+			}
+		}
+	}
+
+	private void apply(int index, long mask, boolean value) {
+		if (value) {
+			words[index] |= mask;
+		} else {
+			words[index] &= ~mask;
+		}
+	}
+
+	private int index(int dx, int dy) {
+		return dy * wordsPerRow + (dx >> ADDRESS_BITS);
+	}
+
+	private void checkUnit(int x, int y) {
+		if (!bounds.containsUnit(x, y)) throw new IllegalArgumentException("coordinates outside bounds");
+	}
+
+	// object methods
+
+	@Override
+	public int hashCode() {
+		return bounds.hashCode() + 31 * Arrays.hashCode(words);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (obj == this) return true;
+		if (!(obj instanceof IntBitGrid)) return false;
+		IntBitGrid that = (IntBitGrid) obj;
+		return this.bounds.equals(that.bounds) && Arrays.equals(this.words, that.words);
+	}
+
+	@Override
+	public String toString() {
+		return count() + " of " + width + "x" + height + " set at " + bounds;
+	}
+
+}
@@ -0,0 +1,320 @@
+package com.tomgibara.intgeom;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// compact binary encodings of geometric values, written to and read from streams or byte buffers
+// ints are written as zig-zag varints, so small magnitudes take few bytes, and sequences are delta encoded
+// buffer backed encoders and decoders advance the buffer position and fail with the usual buffer over/underflow exceptions
+public final class IntCodec {
+
+	// statics
+
+	// transform tags, right angle rotations occupy TAG_IDENTITY plus the number of quarter turns
+	private static final int TAG_IDENTITY = 0;
+	private static final int TAG_TRANSLATION = 4;
+	private static final int TAG_GENERAL = 5;
+
+	// initial capacity limit, so that a corrupt count cannot trigger a huge allocation
+	private static final int MAX_INITIAL_CAPACITY = 1024;
+
+	public static Encoder encoder(DataOutput out) {
+		if (out == null) throw new IllegalArgumentException("null out");
+		return new Encoder() {
+			@Override void writeByte(int b) throws IOException { out.writeByte(b); }
+		};
+	}
+
+	public static Encoder encoder(ByteBuffer buffer) {
+		if (buffer == null) throw new IllegalArgumentException("null buffer");
+		if (buffer.isReadOnly()) throw new IllegalArgumentException("read-only buffer");
+		return new Encoder() {
+			@Override void writeByte(int b) { buffer.put((byte) b); }
+		};
+	}
+
+	public static Decoder decoder(DataInput in) {
+		if (in == null) throw new IllegalArgumentException("null in");
+		return new Decoder() {
+			@Override int readByte() throws IOException { return in.readByte(); }
+		};
+	}
+
+	public static Decoder decoder(ByteBuffer buffer) {
+		if (buffer == null) throw new IllegalArgumentException("null buffer");
+		return new Decoder() {
+			@Override int readByte() { return buffer.get(); }
+		};
+	}
+
+	private static int zigZag(int i) {
+		return i << 1 ^ i >> 31;
+	}
+
+	private static int unZigZag(int i) {
+		return i >>> 1 ^ -(i & 1);
+	}
+
+	private static boolean isTranslation(IntTransform t) {
+		return t.m00 == 1 && t.m10 == 0 && t.m01 == 0 && t.m11 == 1;
+	}
+
+	private static boolean hasLinearPart(IntTransform t, IntTransform r) {
+		return t.m00 == r.m00 && t.m10 == r.m10 && t.m01 == r.m01 && t.m11 == r.m11 && t.m02 == 0 && t.m12 == 0;
+	}
+
+	// inner classes
+
+	public static abstract class Encoder {
+
+		Encoder() { }
+
+		abstract void writeByte(int b) throws IOException;
+
+		// primitives
+
+		public void writeUnsignedInt(int i) throws IOException {
+			while ((i & ~0x7f) != 0) {
+				writeByte(i & 0x7f | 0x80);
+				i >>>= 7;
+			}
+			writeByte(i);
+		}
+
+		public void writeInt(int i) throws IOException {
+			writeUnsignedInt(zigZag(i));
+		}
+
+		// values
+
+		public void writeCoords(IntCoords coords) throws IOException {
+			if (coords == null) throw new IllegalArgumentException("null coords");
+			writeInt(coords.x);
+			writeInt(coords.y);
+		}
+
+		// written as the minimum coordinates and dimensions
+		public void writeRect(IntRect rect) throws IOException {
+			if (rect == null) throw new IllegalArgumentException("null rect");
+			writeRect(rect.minX, rect.minY, rect.maxX, rect.maxY, 0, 0);
+		}
+
+		public void writeMargins(IntMargins margins) throws IOException {
+			if (margins == null) throw new IllegalArgumentException("null margins");
+			writeInt(margins.minX);
+			writeInt(margins.maxX);
+			writeInt(margins.minY);
+			writeInt(margins.maxY);
+		}
+
+		// identity, right angle rotations and translations have compact encodings
+		public void writeTransform(IntTransform transform) throws IOException {
+			if (transform == null) throw new IllegalArgumentException("null transform");
+			if (transform.isIdentity()) {
+				writeByte(TAG_IDENTITY);
+				return;
+			}
+			if (isTranslation(transform)) {
+				writeByte(TAG_TRANSLATION);
+				writeInt(transform.m02);
+				writeInt(transform.m12);
+				return;
+			}
+			for (int q = 1; q < 4; q++) {
+				if (hasLinearPart(transform, IntTransform.rotateRightAngles(q))) {
+					writeByte(TAG_IDENTITY + q);
+					return;
+				}
+			}
+			writeByte(TAG_GENERAL);
+			writeInt(transform.m00);
+			writeInt(transform.m10);
+			writeInt(transform.m01);
+			writeInt(transform.m11);
+			writeInt(transform.m02);
+			writeInt(transform.m12);
+		}
+
+		// sequences, each value is written relative to its predecessor
+
+		public void writeCoordsSequence(List<IntCoords> coords) throws IOException {
+			if (coords == null) throw new IllegalArgumentException("null coords");
+			writeUnsignedInt(coords.size());
+			int x = 0;
+			int y = 0;
+			for (IntCoords c : coords) {
+				if (c == null) throw new IllegalArgumentException("null coords");
+				writeInt(c.x - x);
+				writeInt(c.y - y);
+				x = c.x;
+				y = c.y;
+			}
+		}
+
+		public void writeRectSequence(List<IntRect> rects) throws IOException {
+			if (rects == null) throw new IllegalArgumentException("null rects");
+			writeUnsignedInt(rects.size());
+			int x = 0;
+			int y = 0;
+			for (IntRect r : rects) {
+				if (r == null) throw new IllegalArgumentException("null rect");
+				writeRect(r.minX, r.minY, r.maxX, r.maxY, x, y);
+				x = r.minX;
+				y = r.minY;
+			}
+		}
+
+		public void writeRectSequence(IntRectArray rects) throws IOException {
+			if (rects == null) throw new IllegalArgumentException("null rects");
+			int size = rects.size();
+			writeUnsignedInt(size);
+			int x = 0;
+			int y = 0;
+			for (int i = 0; i < size; i++) {
+				int minX = rects.minX(i);
+				int minY = rects.minY(i);
+				writeRect(minX, minY, rects.maxX(i), rects.maxY(i), x, y);
+				x = minX;
+				y = minY;
+			}
+		}
+
+		// dimensions are non-negative, but may exceed Integer.MAX_VALUE, so are written unsigned
+		private void writeRect(int minX, int minY, int maxX, int maxY, int x, int y) throws IOException {
+			writeInt(minX - x);
+			writeInt(minY - y);
+			writeUnsignedInt(maxX - minX);
+			writeUnsignedInt(maxY - minY);
+		}
+	}
+
+	public static abstract class Decoder {
+
+		Decoder() { }
+
+		abstract int readByte() throws IOException;
+
+		// primitives
+
+		public int readUnsignedInt() throws IOException {
+			int i = 0;
+			for (int shift = 0; shift < 35; shift += 7) {
+				int b = readByte();
+				i |= (b & 0x7f) << shift;
+				if ((b & 0x80) == 0) return i;
+			}
+			throw new IOException("malformed varint");
+		}
+
+		public int readInt() throws IOException {
+			return unZigZag(readUnsignedInt());
+		}
+
+		// values
+
+		public IntCoords readCoords() throws IOException {
+			return new IntCoords(readInt(), readInt());
+		}
+
+		public IntRect readRect() throws IOException {
+			return readRect(0, 0);
+		}
+
+		public IntMargins readMargins() throws IOException {
+			int minX = readInt();
+			int maxX = readInt();
+			int minY = readInt();
+			int maxY = readInt();
+			return IntMargins.offsets(minX, maxX, minY, maxY);
+		}
+
+		public IntTransform readTransform() throws IOException {
+			int tag = readByte();
+			switch (tag) {
+			case TAG_IDENTITY : return IntTransform.identity();
+			case TAG_IDENTITY + 1 :
+			case TAG_IDENTITY + 2 :
+			case TAG_IDENTITY + 3 : return IntTransform.rotateRightAngles(tag - TAG_IDENTITY);
+			case TAG_TRANSLATION : return IntTransform.translation(readInt(), readInt());
+			case TAG_GENERAL :
+				int m00 = readInt();
+				int m10 = readInt();
+				int m01 = readInt();
+				int m11 = readInt();
+				int m02 = readInt();
+				int m12 = readInt();
+				try {
+					return IntTransform.components(m00, m10, m01, m11, m02, m12);
+				} catch (IllegalArgumentException e) {
+					throw new IOException("invalid transform", e);
+				}
+			default: throw new IOException("invalid transform tag " + tag);
+			}
+		}
+
+		// sequences
+
+		public List<IntCoords> readCoordsSequence() throws IOException {
+			int size = readSize();
+			List<IntCoords> list = new ArrayList<>(Math.min(size, MAX_INITIAL_CAPACITY));
+			int x = 0;
+			int y = 0;
+			for (int i = 0; i < size; i++) {
+				x += readInt();
+				y += readInt();
+				list.add(new IntCoords(x, y));
+			}
+			return Collections.unmodifiableList(list);
+		}
+
+		public List<IntRect> readRectSequence() throws IOException {
+			int size = readSize();
+			List<IntRect> list = new ArrayList<>(Math.min(size, MAX_INITIAL_CAPACITY));
+			int x = 0;
+			int y = 0;
+			for (int i = 0; i < size; i++) {
+				IntRect rect = readRect(x, y);
+				list.add(rect);
+				x = rect.minX;
+				y = rect.minY;
+			}
+			return Collections.unmodifiableList(list);
+		}
+
+		public IntRectArray readRectArray() throws IOException {
+			int size = readSize();
+			IntRectArray array = new IntRectArray(Math.min(size, MAX_INITIAL_CAPACITY));
+			int x = 0;
+			int y = 0;
+			for (int i = 0; i < size; i++) {
+				IntRect rect = readRect(x, y);
+				array.add(rect.minX, rect.minY, rect.maxX, rect.maxY);
+				x = rect.minX;
+				y = rect.minY;
+			}
+			return array;
+		}
+
+		private IntRect readRect(int x, int y) throws IOException {
+			int minX = x + readInt();
+			int minY = y + readInt();
+			int maxX = minX + readUnsignedInt();
+			int maxY = minY + readUnsignedInt();
+			if (maxX < minX || maxY < minY) throw new IOException("invalid rect");
+			return new IntRect(minX, minY, maxX, maxY);
+		}
+
+		private int readSize() throws IOException {
+			int size = readUnsignedInt();
+			if (size < 0) throw new IOException("invalid size");
+			return size;
+		}
+	}
+
+	private IntCodec() {}
+}
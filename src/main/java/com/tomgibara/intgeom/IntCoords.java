@@ -74,7 +74,7 @@ public final class IntCoords {
 
 	public IntCoords relativeTo(IntRect rect) {
 		if (rect == null) throw new IllegalArgumentException("null rect");
-		return translatedBy(-rect.minX, rect.minY);
+		return translatedBy(-rect.minX, -rect.minY);
 	}
 
 	public IntCoords modulo(IntRect rect) {
@@ -101,6 +101,10 @@ public final class IntCoords {
 		return new IntVector(-x, -y);
 	}
 
+	public long toPair() {
+		return IntPair.fromInts(x, y);
+	}
+
 	// object methods
 
 	@Override
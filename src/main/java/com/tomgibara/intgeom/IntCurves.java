@@ -0,0 +1,97 @@
+package com.tomgibara.intgeom;
+
+// space filling curves over a square of side 1 << bits, for non-negative coordinates within the square
+final class IntCurves {
+
+	// the most bits supported, keeping indices non-negative
+	static final int MAX_BITS = 31;
+
+	// the least number of bits for a square that spans the supplied extent
+	static int bitsFor(long extent) {
+		int bits = extent <= 1L ? 0 : 64 - Long.numberOfLeadingZeros(extent - 1);
+		if (bits > MAX_BITS) throw new IllegalStateException("too large for curve index");
+		return bits;
+	}
+
+	// morton (z-order) curve, x occupies the even bits of the index
+
+	static long mortonEncode(int x, int y) {
+		return spread(x) | spread(y) << 1;
+	}
+
+	static int mortonDecodeX(long index) {
+		return compact(index);
+	}
+
+	static int mortonDecodeY(long index) {
+		return compact(index >>> 1);
+	}
+
+	// hilbert curve, starting at the origin and ending at (side - 1, 0)
+
+	static long hilbertEncode(int bits, int x, int y) {
+		long index = 0L;
+		for (int s = bits - 1; s >= 0; s--) {
+			int rx = (x >>> s) & 1;
+			int ry = (y >>> s) & 1;
+			index += (long) ((3 * rx) ^ ry) << (2 * s);
+			// rotate the lower bits into the orientation of the quadrant
+			if (ry == 0) {
+				if (rx == 1) {
+					int mask = (1 << s) - 1;
+					x = ~x & mask;
+					y = ~y & mask;
+				}
+				int t = x;
+				x = y;
+				y = t;
+			}
+		}
+		return index;
+	}
+
+	// the decoded coordinates as an IntPair
+	static long hilbertDecode(int bits, long index) {
+		int x = 0;
+		int y = 0;
+		for (int s = 0; s < bits; s++, index >>>= 2) {
+			int rx = (int) (index >>> 1) & 1;
+			int ry = (int) (index ^ rx) & 1;
+			if (ry == 0) {
+				if (rx == 1) {
+					int mask = (1 << s) - 1;
+					x = ~x & mask;
+					y = ~y & mask;
+				}
+				int t = x;
+				x = y;
+				y = t;
+			}
+			x |= rx << s;
+			y |= ry << s;
+		}
+		return IntPair.fromInts(x, y);
+	}
+
+	private static long spread(int v) {
+		long x = v & 0xffffffffL;
+		x = (x | x << 16) & 0x0000ffff0000ffffL;
+		x = (x | x <<  8) & 0x00ff00ff00ff00ffL;
+		x = (x | x <<  4) & 0x0f0f0f0f0f0f0f0fL;
+		x = (x | x <<  2) & 0x3333333333333333L;
+		x = (x | x <<  1) & 0x5555555555555555L;
+		return x;
+	}
+
+	private static int compact(long x) {
+		x &= 0x5555555555555555L;
+		x = (x | x >>>  1) & 0x3333333333333333L;
+		x = (x | x >>>  2) & 0x0f0f0f0f0f0f0f0fL;
+		x = (x | x >>>  4) & 0x00ff00ff00ff00ffL;
+		x = (x | x >>>  8) & 0x0000ffff0000ffffL;
+		x = (x | x >>> 16) & 0x00000000ffffffffL;
+		return (int) x;
+	}
+
+	private IntCurves() {}
+}
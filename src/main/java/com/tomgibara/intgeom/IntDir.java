@@ -76,4 +76,22 @@ public enum IntDir {
 		}
 	}
 
+	public int difference(long a, long b) {
+		switch (this) {
+		case LESS_X : return IntPair.xOf(a) - IntPair.xOf(b);
+		case MORE_X : return IntPair.xOf(b) - IntPair.xOf(a);
+		case LESS_Y : return IntPair.yOf(a) - IntPair.yOf(b);
+		case MORE_Y : return IntPair.yOf(b) - IntPair.yOf(a);
+		default: throw new IllegalStateException();
+		}
+	}
+
+	public long moved(long pair) {
+		return IntPair.movedBy(pair, this);
+	}
+
+	public long moved(long pair, int distance) {
+		return IntPair.movedBy(pair, this, distance);
+	}
+
 }
@@ -0,0 +1,110 @@
+package com.tomgibara.intgeom;
+
+import java.util.Arrays;
+
+// a two dimensional binary indexed tree over the units of a domain, for point updates and rect sums
+public final class IntFenwickTree {
+
+	// fields
+
+	public final IntRect domain;
+
+	private final int width;
+	private final int height;
+	private final long[] tree; // row major, with node (i, j) at (j - 1) * width + (i - 1)
+
+	// constructors
+
+	public IntFenwickTree(IntRect domain) {
+		if (domain == null) throw new IllegalArgumentException("null domain");
+		long width = (long) domain.maxX - domain.minX;
+		long height = (long) domain.maxY - domain.minY;
+		if (width < 0L || height < 0L) throw new IllegalArgumentException("invalid domain");
+		if (width * height > Integer.MAX_VALUE - 8) throw new IllegalArgumentException("domain too large");
+		this.domain = domain;
+		this.width = (int) width;
+		this.height = (int) height;
+		tree = new long[this.width * this.height];
+	}
+
+	// mutation
+
+	public void add(int x, int y, long delta) {
+		if (!domain.containsUnit(x, y)) throw new IllegalArgumentException("coordinates outside domain");
+		int fromI = x - domain.minX + 1;
+		for (int j = y - domain.minY + 1; j <= height; j += j & -j) {
+			int row = (j - 1) * width - 1;
+			for (int i = fromI; i <= width; i += i & -i) {
+				tree[row + i] += delta;
+			}
+		}
+	}
+
+	public void add(long pair, long delta) {
+		add(IntPair.xOf(pair), IntPair.yOf(pair), delta);
+	}
+
+	public void add(IntCoords coords, long delta) {
+		if (coords == null) throw new IllegalArgumentException("null coords");
+		add(coords.x, coords.y, delta);
+	}
+
+	public void set(int x, int y, long value) {
+		add(x, y, value - get(x, y));
+	}
+
+	public void set(long pair, long value) {
+		set(IntPair.xOf(pair), IntPair.yOf(pair), value);
+	}
+
+	public void clear() {
+		Arrays.fill(tree, 0L);
+	}
+
+	// queries
+
+	public long get(int x, int y) {
+		if (!domain.containsUnit(x, y)) throw new IllegalArgumentException("coordinates outside domain");
+		int i = x - domain.minX;
+		int j = y - domain.minY;
+		return prefix(i + 1, j + 1) - prefix(i, j + 1) - prefix(i + 1, j) + prefix(i, j);
+	}
+
+	public long get(long pair) {
+		return get(IntPair.xOf(pair), IntPair.yOf(pair));
+	}
+
+	public long get(IntCoords coords) {
+		if (coords == null) throw new IllegalArgumentException("null coords");
+		return get(coords.x, coords.y);
+	}
+
+	public long total() {
+		return prefix(width, height);
+	}
+
+	// the sum of the values of the units in the rect that lie within the domain
+	public long sum(IntRect rect) {
+		if (rect == null) throw new IllegalArgumentException("null rect");
+		if (!domain.intersectsRect(rect)) return 0L;
+		int x0 = Math.max(rect.minX, domain.minX) - domain.minX;
+		int y0 = Math.max(rect.minY, domain.minY) - domain.minY;
+		int x1 = Math.min(rect.maxX, domain.maxX) - domain.minX;
+		int y1 = Math.min(rect.maxY, domain.maxY) - domain.minY;
+		if (x0 >= x1 || y0 >= y1) return 0L;
+		return prefix(x1, y1) - prefix(x0, y1) - prefix(x1, y0) + prefix(x0, y0);
+	}
+
+	// the sum over the first i columns of the first j rows
+	private long prefix(int i, int j) {
+		long sum = 0L;
+		for (; j > 0; j -= j & -j) {
+			int row = (j - 1) * width - 1;
+			for (int k = i; k > 0; k -= k & -k) {
+				sum += tree[row + k];
+			}
+		}
+		return sum;
+	}
+
+}
@@ -4,6 +4,8 @@ public final class IntPair {
 
 	private static final long ONE_X = 0x0000000000000001L;
 	private static final long ONE_Y = 0x0000000100000000L;
+	private static final long X_MASK = 0x00000000ffffffffL;
+	private static final long Y_MASK = 0xffffffff00000000L;
 
 	public static long fromInts(int x, int y) {
 		return (long) y << 32 | (long) x & 0xffffffffL;
@@ -25,6 +27,16 @@ public final class IntPair {
 		return (int) (pair >> 32);
 	}
 
+	// a well mixed hash, unlike IntCoords.hashCode(), for use in hashed structures
+	public static int hash(long pair) {
+		pair ^= pair >>> 33;
+		pair *= 0xff51afd7ed558ccdL;
+		pair ^= pair >>> 33;
+		pair *= 0xc4ceb9fe1a85ec53L;
+		pair ^= pair >>> 33;
+		return (int) pair;
+	}
+
 	public static IntCoords toCoords(long pair) {
 		return new IntCoords(xOf(pair), yOf(pair));
 	}
@@ -33,13 +45,15 @@ public final class IntPair {
 		return new IntVector(xOf(pair), yOf(pair));
 	}
 
-	public static long plusOneX (long pair) { return pair + ONE_X; }
-	public static long minusOneX(long pair) { return pair - ONE_X; }
+	// x is adjusted separately to prevent it carrying into (or borrowing from) y
+
+	public static long plusOneX (long pair) { return pair & Y_MASK | pair + ONE_X & X_MASK; }
+	public static long minusOneX(long pair) { return pair & Y_MASK | pair - ONE_X & X_MASK; }
 	public static long plusOneY (long pair) { return pair + ONE_Y; }
 	public static long minusOneY(long pair) { return pair - ONE_Y; }
 
-	public static long translate (long pair, long delta) { return pair + delta;          }
-	public static long translateX(long pair, int deltaX) { return pair + deltaX * ONE_X; }
+	public static long translate (long pair, long delta) { return (pair & Y_MASK) + (delta & Y_MASK) | pair + delta & X_MASK; }
+	public static long translateX(long pair, int deltaX) { return pair & Y_MASK | pair + deltaX & X_MASK; }
 	public static long translateY(long pair, int deltaY) { return pair + deltaY * ONE_Y; }
 
 	public static long movedBy(long pair, IntDir dir) {
@@ -52,12 +66,12 @@ public final class IntPair {
 		}
 	}
 
-	public long movedBy(long pair, IntDir dir, int distance) {
+	public static long movedBy(long pair, IntDir dir, int distance) {
 		switch (dir) {
 		case LESS_X : return translateX(pair, -distance);
 		case MORE_X : return translateX(pair,  distance);
-		case LESS_Y : return translateY(pair,  distance);
-		case MORE_Y : return translateY(pair, -distance);
+		case LESS_Y : return translateY(pair, -distance);
+		case MORE_Y : return translateY(pair,  distance);
 		default: throw new IllegalStateException();
 		}
 	}
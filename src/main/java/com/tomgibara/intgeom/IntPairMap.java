@@ -0,0 +1,262 @@
+package com.tomgibara.intgeom;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+// a hash map from IntPair values to non-null values using open addressing with linear probing
+public final class IntPairMap<V> {
+
+	// statics
+
+	// zero is the origin, but doubles as the marker for a free slot
+	private static final long FREE = 0L;
+
+	public interface EntryConsumer<V> {
+
+		void accept(long pair, V value);
+
+	}
+
+	// fields
+
+	private long[] keys;
+	private Object[] values;
+	private Object freeValue = null; // the value of the zero key, if any
+	private int mask;
+	private int limit;
+	private int size = 0;
+
+	// constructors
+
+	public IntPairMap() {
+		this(0);
+	}
+
+	public IntPairMap(int expectedSize) {
+		if (expectedSize < 0) throw new IllegalArgumentException("negative expectedSize");
+		allocate(IntPairSet.tableSize(expectedSize));
+	}
+
+	// accessors
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public boolean containsKey(long pair) {
+		return get(pair) != null;
+	}
+
+	public boolean containsKey(int x, int y) {
+		return get(IntPair.fromInts(x, y)) != null;
+	}
+
+	@SuppressWarnings("unchecked")
+	public V get(long pair) {
+		if (pair == FREE) return (V) freeValue;
+		for (int slot = IntPair.hash(pair) & mask; ; slot = slot + 1 & mask) {
+			long key = keys[slot];
+			if (key == pair) return (V) values[slot];
+			if (key == FREE) return null;
+		}
+	}
+
+	public V get(int x, int y) {
+		return get(IntPair.fromInts(x, y));
+	}
+
+	public V getOrDefault(long pair, V defaultValue) {
+		V value = get(pair);
+		return value == null ? defaultValue : value;
+	}
+
+	// mutation
+
+	// returns the previous value, or null
+	@SuppressWarnings("unchecked")
+	public V put(long pair, V value) {
+		if (value == null) throw new IllegalArgumentException("null value");
+		if (pair == FREE) {
+			V previous = (V) freeValue;
+			freeValue = value;
+			if (previous == null) size++;
+			return previous;
+		}
+		int slot = IntPair.hash(pair) & mask;
+		for (long key; (key = keys[slot]) != FREE; slot = slot + 1 & mask) {
+			if (key == pair) {
+				V previous = (V) values[slot];
+				values[slot] = value;
+				return previous;
+			}
+		}
+		keys[slot] = pair;
+		values[slot] = value;
+		if (++size > limit) allocate(keys.length << 1);
+		return null;
+	}
+
+	public V put(int x, int y, V value) {
+		return put(IntPair.fromInts(x, y), value);
+	}
+
+	// returns the removed value, or null
+	@SuppressWarnings("unchecked")
+	public V remove(long pair) {
+		if (pair == FREE) {
+			V previous = (V) freeValue;
+			if (previous != null) {
+				freeValue = null;
+				size--;
+			}
+			return previous;
+		}
+		for (int slot = IntPair.hash(pair) & mask; ; slot = slot + 1 & mask) {
+			long key = keys[slot];
+			if (key == FREE) return null;
+			if (key == pair) {
+				V previous = (V) values[slot];
+				shift(slot);
+				size--;
+				return previous;
+			}
+		}
+	}
+
+	public V remove(int x, int y) {
+		return remove(IntPair.fromInts(x, y));
+	}
+
+	// maps every unit of the rect to the value
+	public void putAll(IntRect rect, V value) {
+		if (rect == null) throw new IllegalArgumentException("null rect");
+		if (value == null) throw new IllegalArgumentException("null value");
+		if (rect.isDegenerate()) return;
+		ensureCapacity(size + (long) rect.width() * rect.height());
+		for (int y = rect.minY; y < rect.maxY; y++) {
+			for (int x = rect.minX; x < rect.maxX; x++) {
+				put(IntPair.fromInts(x, y), value);
+			}
+		}
+	}
+
+	// removes the mappings of every unit of the rect
+	public boolean removeAll(IntRect rect) {
+		if (rect == null) throw new IllegalArgumentException("null rect");
+		if (rect.isDegenerate()) return false;
+		int oldSize = size;
+		if ((long) rect.width() * rect.height() > size) {
+			// cheaper to test each entry than each unit
+			if (freeValue != null && rect.containsUnit(0, 0)) {
+				freeValue = null;
+				size--;
+			}
+			for (int slot = 0; slot < keys.length; ) {
+				long key = keys[slot];
+				if (key != FREE && rect.containsUnit(key)) {
+					shift(slot);
+					size--;
+					// the shift may have moved an unvisited entry into this slot
+				} else {
+					slot++;
+				}
+			}
+		} else {
+			for (int y = rect.minY; y < rect.maxY; y++) {
+				for (int x = rect.minX; x < rect.maxX; x++) {
+					remove(IntPair.fromInts(x, y));
+				}
+			}
+		}
+		return size != oldSize;
+	}
+
+	public void clear() {
+		Arrays.fill(keys, FREE);
+		Arrays.fill(values, null);
+		freeValue = null;
+		size = 0;
+	}
+
+	public void ensureCapacity(long expectedSize) {
+		int length = IntPairSet.tableSize(expectedSize);
+		if (length > keys.length) allocate(length);
+	}
+
+	// iteration
+
+	public void forEachKey(LongConsumer consumer) {
+		if (consumer == null) throw new IllegalArgumentException("null consumer");
+		if (freeValue != null) consumer.accept(FREE);
+		for (long key : keys) {
+			if (key != FREE) consumer.accept(key);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	public void forEach(EntryConsumer<? super V> consumer) {
+		if (consumer == null) throw new IllegalArgumentException("null consumer");
+		if (freeValue != null) consumer.accept(FREE, (V) freeValue);
+		for (int slot = 0; slot < keys.length; slot++) {
+			long key = keys[slot];
+			if (key != FREE) consumer.accept(key, (V) values[slot]);
+		}
+	}
+
+	// removes the entry at the slot, shifting back any subsequent entries that probed past it
+	private void shift(int slot) {
+		while (true) {
+			int last = slot;
+			long key;
+			while (true) {
+				slot = slot + 1 & mask;
+				key = keys[slot];
+				if (key == FREE) {
+					keys[last] = FREE;
+					values[last] = null;
+					return;
+				}
+				int ideal = IntPair.hash(key) & mask;
+				if (last <= slot ? last >= ideal || ideal > slot : last >= ideal && ideal > slot) break;
+			}
+			keys[last] = key;
+			values[last] = values[slot];
+		}
+	}
+
+	private void allocate(int length) {
+		long[] oldKeys = keys;
+		Object[] oldValues = values;
+		keys = new long[length];
+		values = new Object[length];
+		mask = length - 1;
+		limit = (int) (length * 2L / 3);
+		if (oldKeys != null) {
+			for (int i = 0; i < oldKeys.length; i++) {
+				long key = oldKeys[i];
+				if (key == FREE) continue;
+				int slot = IntPair.hash(key) & mask;
+				while (keys[slot] != FREE) slot = slot + 1 & mask;
+				keys[slot] = key;
+				values[slot] = oldValues[i];
+			}
+		}
+	}
+
+	// object methods
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("{");
+		forEach((pair, value) -> {
+			if (sb.length() > 1) sb.append(", ");
+			sb.append('(').append(IntPair.xOf(pair)).append(',').append(IntPair.yOf(pair)).append(")=").append(value);
+		});
+		return sb.append('}').toString();
+	}
+
+}
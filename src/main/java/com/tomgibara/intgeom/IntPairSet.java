@@ -0,0 +1,253 @@
+package com.tomgibara.intgeom;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+import java.util.stream.LongStream;
+
+// a hash set of IntPair values using open addressing with linear probing
+public final class IntPairSet {
+
+	// statics
+
+	private static final int MIN_CAPACITY = 16;
+	private static final int MAX_CAPACITY = 1 << 30;
+
+	// zero is the origin, but doubles as the marker for a free slot
+	private static final long FREE = 0L;
+
+	static int tableSize(long expected) {
+		// keep the load factor at or below two thirds
+		long required = Math.max(expected + (expected >> 1) + 1, MIN_CAPACITY);
+		if (required > MAX_CAPACITY) throw new IllegalArgumentException("too many pairs");
+		return Integer.highestOneBit((int) required - 1) << 1;
+	}
+
+	// fields
+
+	private long[] keys;
+	private boolean hasFree = false;
+	private int mask;
+	private int limit;
+	private int size = 0;
+
+	// constructors
+
+	public IntPairSet() {
+		this(0);
+	}
+
+	public IntPairSet(int expectedSize) {
+		if (expectedSize < 0) throw new IllegalArgumentException("negative expectedSize");
+		allocate(tableSize(expectedSize));
+	}
+
+	// accessors
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public boolean contains(long pair) {
+		if (pair == FREE) return hasFree;
+		for (int slot = IntPair.hash(pair) & mask; ; slot = slot + 1 & mask) {
+			long key = keys[slot];
+			if (key == pair) return true;
+			if (key == FREE) return false;
+		}
+	}
+
+	public boolean contains(int x, int y) {
+		return contains(IntPair.fromInts(x, y));
+	}
+
+	// mutation
+
+	public boolean add(long pair) {
+		if (pair == FREE) {
+			if (hasFree) return false;
+			hasFree = true;
+			size++;
+			return true;
+		}
+		int slot = IntPair.hash(pair) & mask;
+		for (long key; (key = keys[slot]) != FREE; slot = slot + 1 & mask) {
+			if (key == pair) return false;
+		}
+		keys[slot] = pair;
+		if (++size > limit) allocate(keys.length << 1);
+		return true;
+	}
+
+	public boolean add(int x, int y) {
+		return add(IntPair.fromInts(x, y));
+	}
+
+	public boolean remove(long pair) {
+		if (pair == FREE) {
+			if (!hasFree) return false;
+			hasFree = false;
+			size--;
+			return true;
+		}
+		for (int slot = IntPair.hash(pair) & mask; ; slot = slot + 1 & mask) {
+			long key = keys[slot];
+			if (key == FREE) return false;
+			if (key == pair) {
+				shift(slot);
+				size--;
+				return true;
+			}
+		}
+	}
+
+	public boolean remove(int x, int y) {
+		return remove(IntPair.fromInts(x, y));
+	}
+
+	// adds every unit of the rect
+	public boolean addAll(IntRect rect) {
+		if (rect == null) throw new IllegalArgumentException("null rect");
+		if (rect.isDegenerate()) return false;
+		ensureCapacity(size + (long) rect.width() * rect.height());
+		int oldSize = size;
+		for (int y = rect.minY; y < rect.maxY; y++) {
+			for (int x = rect.minX; x < rect.maxX; x++) {
+				add(IntPair.fromInts(x, y));
+			}
+		}
+		return size != oldSize;
+	}
+
+	// removes every unit of the rect
+	public boolean removeAll(IntRect rect) {
+		if (rect == null) throw new IllegalArgumentException("null rect");
+		if (rect.isDegenerate()) return false;
+		int oldSize = size;
+		if ((long) rect.width() * rect.height() > size) {
+			// cheaper to test each member than each unit
+			if (hasFree && rect.containsUnit(0, 0)) {
+				hasFree = false;
+				size--;
+			}
+			for (int slot = 0; slot < keys.length; ) {
+				long key = keys[slot];
+				if (key != FREE && rect.containsUnit(key)) {
+					shift(slot);
+					size--;
+					// the shift may have moved an unvisited key into this slot
+				} else {
+					slot++;
+				}
+			}
+		} else {
+			for (int y = rect.minY; y < rect.maxY; y++) {
+				for (int x = rect.minX; x < rect.maxX; x++) {
+					remove(IntPair.fromInts(x, y));
+				}
+			}
+		}
+		return size != oldSize;
+	}
+
+	public void clear() {
+		Arrays.fill(keys, FREE);
+		hasFree = false;
+		size = 0;
+	}
+
+	public void ensureCapacity(long expectedSize) {
+		int length = tableSize(expectedSize);
+		if (length > keys.length) allocate(length);
+	}
+
+	// iteration
+
+	public void forEach(LongConsumer consumer) {
+		if (consumer == null) throw new IllegalArgumentException("null consumer");
+		if (hasFree) consumer.accept(FREE);
+		for (long key : keys) {
+			if (key != FREE) consumer.accept(key);
+		}
+	}
+
+	public LongStream stream() {
+		LongStream stream = Arrays.stream(keys).filter(k -> k != FREE);
+		return hasFree ? LongStream.concat(LongStream.of(FREE), stream) : stream;
+	}
+
+	public long[] toArray() {
+		return stream().toArray();
+	}
+
+	// removes the key at the slot, shifting back any subsequent keys that probed past it
+	private void shift(int slot) {
+		while (true) {
+			int last = slot;
+			long key;
+			while (true) {
+				slot = slot + 1 & mask;
+				key = keys[slot];
+				if (key == FREE) {
+					keys[last] = FREE;
+					return;
+				}
+				int ideal = IntPair.hash(key) & mask;
+				if (last <= slot ? last >= ideal || ideal > slot : last >= ideal && ideal > slot) break;
+			}
+			keys[last] = key;
+		}
+	}
+
+	private void allocate(int length) {
+		long[] old = keys;
+		keys = new long[length];
+		mask = length - 1;
+		limit = (int) (length * 2L / 3);
+		if (old != null) {
+			for (long key : old) {
+				if (key == FREE) continue;
+				int slot = IntPair.hash(key) & mask;
+				while (keys[slot] != FREE) slot = slot + 1 & mask;
+				keys[slot] = key;
+			}
+		}
+	}
+
+	// object methods
+
+	@Override
+	public int hashCode() {
+		int h = 0;
+		for (long key : keys) {
+			if (key != FREE) h += IntPair.hash(key);
+		}
+		return hasFree ? h + IntPair.hash(FREE) : h;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (obj == this) return true;
+		if (!(obj instanceof IntPairSet)) return false;
+		IntPairSet that = (IntPairSet) obj;
+		if (this.size != that.size || this.hasFree != that.hasFree) return false;
+		for (long key : keys) {
+			if (key != FREE && !that.contains(key)) return false;
+		}
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("{");
+		forEach(pair -> {
+			if (sb.length() > 1) sb.append(", ");
+			sb.append('(').append(IntPair.xOf(pair)).append(',').append(IntPair.yOf(pair)).append(')');
+		});
+		return sb.append('}').toString();
+	}
+
+}
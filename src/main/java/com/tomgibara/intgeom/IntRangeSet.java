@@ -0,0 +1,244 @@
+package com.tomgibara.intgeom;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.IntStream;
+
+// a set of integers, stored as the sorted boundaries of disjoint, non-adjacent, non-empty ranges
+public final class IntRangeSet {
+
+	// statics
+
+	// truth tables indexed by (inA ? 2 : 0) | (inB ? 1 : 0)
+	private static final int OP_UNION     = 0b1110;
+	private static final int OP_INTERSECT = 0b1000;
+	private static final int OP_SUBTRACT  = 0b0100;
+	private static final int OP_XOR       = 0b0110;
+
+	private static final IntRangeSet EMPTY = new IntRangeSet(new int[0]);
+
+	public static IntRangeSet empty() {
+		return EMPTY;
+	}
+
+	// empty ranges contribute nothing
+	public static IntRangeSet of(IntRange range) {
+		if (range == null) throw new IllegalArgumentException("null range");
+		return range.min == range.max ? EMPTY : new IntRangeSet(new int[] { range.min, range.max });
+	}
+
+	public static IntRangeSet unionOf(Collection<IntRange> ranges) {
+		if (ranges == null) throw new IllegalArgumentException("null ranges");
+		if (ranges.contains(null)) throw new IllegalArgumentException("null range");
+		// sort then merge in a single pass
+		long[] keys = new long[ranges.size()];
+		int[] maxs = new int[keys.length];
+		int count = 0;
+		for (IntRange range : ranges) {
+			if (range.min == range.max) continue;
+			keys[count] = (long) range.min << 32 | count;
+			maxs[count] = range.max;
+			count++;
+		}
+		Arrays.sort(keys, 0, count);
+		int[] boundaries = new int[2 * count];
+		int length = 0;
+		for (int i = 0; i < count; i++) {
+			int min = (int) (keys[i] >> 32);
+			int max = maxs[(int) keys[i]];
+			if (length > 0 && min <= boundaries[length - 1]) {
+				boundaries[length - 1] = Math.max(boundaries[length - 1], max);
+			} else {
+				boundaries[length++] = min;
+				boundaries[length++] = max;
+			}
+		}
+		return length == 0 ? EMPTY : new IntRangeSet(Arrays.copyOf(boundaries, length));
+	}
+
+	private static boolean includes(int op, boolean inA, boolean inB) {
+		return (op >> ((inA ? 2 : 0) | (inB ? 1 : 0)) & 1) == 1;
+	}
+
+	// fields
+
+	private final int[] boundaries; // min then max of each range
+
+	// constructors
+
+	private IntRangeSet(int[] boundaries) {
+		this.boundaries = boundaries;
+	}
+
+	// methods
+
+	public boolean isEmpty() {
+		return boundaries.length == 0;
+	}
+
+	public int rangeCount() {
+		return boundaries.length >> 1;
+	}
+
+	public long unitCount() {
+		long count = 0L;
+		for (int i = 0; i < boundaries.length; i += 2) {
+			count += (long) boundaries[i + 1] - boundaries[i];
+		}
+		return count;
+	}
+
+	public Optional<IntRange> bounds() {
+		return isEmpty() ? Optional.empty() : Optional.of(new IntRange(boundaries[0], boundaries[boundaries.length - 1]));
+	}
+
+	// as per IntRange, the max of each range is contained as a point
+	public boolean containsPoint(int point) {
+		int i = lastBoundaryAtOrBefore(point);
+		if (i < 0) return false;
+		return (i & 1) == 0 || boundaries[i] == point;
+	}
+
+	public boolean containsUnit(int unit) {
+		int i = lastBoundaryAtOrBefore(unit);
+		return i >= 0 && (i & 1) == 0;
+	}
+
+	public boolean contains(IntRange range) {
+		if (range == null) throw new IllegalArgumentException("null range");
+		if (range.min == range.max) return containsPoint(range.min);
+		int i = lastBoundaryAtOrBefore(range.min);
+		return i >= 0 && (i & 1) == 0 && boundaries[i + 1] >= range.max;
+	}
+
+	public boolean intersects(IntRange range) {
+		if (range == null) throw new IllegalArgumentException("null range");
+		// the first range ending after range.min must start before range.max
+		int i = lastBoundaryAtOrBefore(range.min);
+		if (i < 0 || (i & 1) == 1) i++;
+		return i < boundaries.length && boundaries[i] < range.max;
+	}
+
+	public IntRangeSet union(IntRangeSet that) {
+		if (that == null) throw new IllegalArgumentException("null that");
+		if (this.isEmpty()) return that;
+		if (that.isEmpty()) return this;
+		return combine(this, that, OP_UNION);
+	}
+
+	public IntRangeSet union(IntRange range) {
+		return union(of(range));
+	}
+
+	public IntRangeSet intersection(IntRangeSet that) {
+		if (that == null) throw new IllegalArgumentException("null that");
+		if (this.isEmpty()) return this;
+		if (that.isEmpty()) return that;
+		return combine(this, that, OP_INTERSECT);
+	}
+
+	public IntRangeSet intersection(IntRange range) {
+		return intersection(of(range));
+	}
+
+	public IntRangeSet difference(IntRangeSet that) {
+		if (that == null) throw new IllegalArgumentException("null that");
+		if (this.isEmpty() || that.isEmpty()) return this;
+		return combine(this, that, OP_SUBTRACT);
+	}
+
+	public IntRangeSet difference(IntRange range) {
+		return difference(of(range));
+	}
+
+	public IntRangeSet symmetricDifference(IntRangeSet that) {
+		if (that == null) throw new IllegalArgumentException("null that");
+		if (this.isEmpty()) return that;
+		if (that.isEmpty()) return this;
+		return combine(this, that, OP_XOR);
+	}
+
+	public IntRangeSet translatedBy(int offset) {
+		if (offset == 0 || isEmpty()) return this;
+		int[] bs = boundaries.clone();
+		for (int i = 0; i < bs.length; i++) bs[i] += offset;
+		return new IntRangeSet(bs);
+	}
+
+	public List<IntRange> ranges() {
+		return new AbstractList<IntRange>() {
+			@Override public int size() { return rangeCount(); }
+			@Override public IntRange get(int index) {
+				if (index < 0 || index >= size()) throw new IndexOutOfBoundsException();
+				return new IntRange(boundaries[2 * index], boundaries[2 * index + 1]);
+			}
+		};
+	}
+
+	// as per IntRange, the units of each range in ascending order
+	public IntStream unitStream() {
+		return IntStream.range(0, rangeCount()).flatMap(i -> IntStream.range(boundaries[2 * i], boundaries[2 * i + 1]));
+	}
+
+	// the index of the greatest boundary not exceeding value, or -1
+	private int lastBoundaryAtOrBefore(int value) {
+		int i = Arrays.binarySearch(boundaries, value);
+		return i >= 0 ? i : -2 - i;
+	}
+
+	// object methods
+
+	@Override
+	public int hashCode() {
+		return Arrays.hashCode(boundaries);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (obj == this) return true;
+		if (!(obj instanceof IntRangeSet)) return false;
+		IntRangeSet that = (IntRangeSet) obj;
+		return Arrays.equals(this.boundaries, that.boundaries);
+	}
+
+	@Override
+	public String toString() {
+		return ranges().toString();
+	}
+
+	// combination
+
+	// a single sweep over the boundaries of both sets
+	private static IntRangeSet combine(IntRangeSet a, IntRangeSet b, int op) {
+		int[] as = a.boundaries;
+		int[] bs = b.boundaries;
+		int[] out = new int[as.length + bs.length];
+		int length = 0;
+		int ai = 0;
+		int bi = 0;
+		boolean inA = false;
+		boolean inB = false;
+		boolean in = false;
+		while (ai < as.length || bi < bs.length) {
+			int x = Math.min(ai < as.length ? as[ai] : Integer.MAX_VALUE, bi < bs.length ? bs[bi] : Integer.MAX_VALUE);
+			if (ai < as.length && as[ai] == x) {
+				inA = !inA;
+				ai++;
+			}
+			if (bi < bs.length && bs[bi] == x) {
+				inB = !inB;
+				bi++;
+			}
+			boolean now = includes(op, inA, inB);
+			if (now != in) {
+				out[length++] = x;
+				in = now;
+			}
+		}
+		return length == 0 ? EMPTY : new IntRangeSet(Arrays.copyOf(out, length));
+	}
+
+}
@@ -0,0 +1,149 @@
+package com.tomgibara.intgeom;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+
+// a static priority search tree: each node holds the range with the greatest max beneath it, the remaining ranges are split evenly by min between its children
+// every query selects the ranges with min <= a and max >= b for some a and b, which costs O(log n + k) for k results
+public final class IntRangeTree {
+
+	// statics
+
+	public interface Visitor {
+
+		// index is the position of the range in the collection supplied to the tree
+		void visit(int index, int min, int max);
+
+	}
+
+	private static final int NONE = -1;
+
+	// fields
+
+	// nodes are in preorder, so the first node is the root and each left child follows its parent
+	private final int[] mins;
+	private final int[] maxs;
+	private final int[] indices;
+	private final int[] leastMins; // the least min in the subtree rooted at each node
+	private final int[] rights; // the right child of each node, or NONE
+	private final boolean[] lefts; // whether each node has a left child
+
+	// constructors
+
+	public IntRangeTree(IntRange... ranges) {
+		this(Arrays.asList(ranges));
+	}
+
+	public IntRangeTree(Collection<IntRange> ranges) {
+		if (ranges == null) throw new IllegalArgumentException("null ranges");
+		if (ranges.contains(null)) throw new IllegalArgumentException("null range");
+		int size = ranges.size();
+		int[] unsortedMins = new int[size];
+		int[] unsortedMaxs = new int[size];
+		long[] keys = new long[size];
+		Iterator<IntRange> it = ranges.iterator();
+		for (int i = 0; i < size; i++) {
+			IntRange range = it.next();
+			keys[i] = (long) range.min << 32 | i;
+			unsortedMins[i] = range.min;
+			unsortedMaxs[i] = range.max;
+		}
+		Arrays.sort(keys);
+		int[] order = new int[size]; // indices in order of min
+		for (int i = 0; i < size; i++) {
+			order[i] = (int) keys[i];
+		}
+		mins = new int[size];
+		maxs = new int[size];
+		indices = new int[size];
+		leastMins = new int[size];
+		rights = new int[size];
+		lefts = new boolean[size];
+		if (size > 0) build(0, order, 0, size, unsortedMins, unsortedMaxs);
+	}
+
+	// accessors
+
+	public int size() {
+		return mins.length;
+	}
+
+	// queries, ranges are visited in no particular order
+
+	// ranges for which IntRange.containsPoint(point) holds
+	public void visitContainingPoint(int point, Visitor visitor) {
+		if (visitor == null) throw new IllegalArgumentException("null visitor");
+		dominating(point, point, visitor);
+	}
+
+	// ranges for which IntRange.containsUnit(unit) holds
+	public void visitContainingUnit(int unit, Visitor visitor) {
+		if (visitor == null) throw new IllegalArgumentException("null visitor");
+		dominating(unit, unit + 1L, visitor);
+	}
+
+	// ranges for which IntRange.intersects(range) holds
+	public void visitIntersecting(IntRange range, Visitor visitor) {
+		if (range == null) throw new IllegalArgumentException("null range");
+		if (visitor == null) throw new IllegalArgumentException("null visitor");
+		dominating(range.max - 1L, range.min + 1L, visitor);
+	}
+
+	public int countContainingPoint(int point) {
+		int[] count = { 0 };
+		dominating(point, point, (i, mn, mx) -> count[0]++);
+		return count[0];
+	}
+
+	public int countIntersecting(IntRange range) {
+		if (range == null) throw new IllegalArgumentException("null range");
+		int[] count = { 0 };
+		dominating(range.max - 1L, range.min + 1L, (i, mn, mx) -> count[0]++);
+		return count[0];
+	}
+
+	// builds the subtree at node from the ranges at order[from, to), which are in order of min
+	private void build(int node, int[] order, int from, int to, int[] unsortedMins, int[] unsortedMaxs) {
+		// take the range with the greatest max, keeping the others in order
+		int best = from;
+		for (int i = from + 1; i < to; i++) {
+			if (unsortedMaxs[order[i]] > unsortedMaxs[order[best]]) best = i;
+		}
+		int index = order[best];
+		mins[node] = unsortedMins[index];
+		maxs[node] = unsortedMaxs[index];
+		indices[node] = index;
+		leastMins[node] = unsortedMins[order[from]];
+		System.arraycopy(order, from, order, from + 1, best - from);
+		from++;
+		int mid = (from + to) >>> 1;
+		lefts[node] = mid > from;
+		if (lefts[node]) build(node + 1, order, from, mid, unsortedMins, unsortedMaxs);
+		if (to > mid) {
+			int right = node + 1 + mid - from;
+			rights[node] = right;
+			build(right, order, mid, to, unsortedMins, unsortedMaxs);
+		} else {
+			rights[node] = NONE;
+		}
+	}
+
+	// visits the ranges with min <= a and max >= b
+	private void dominating(long a, long b, Visitor visitor) {
+		if (mins.length > 0) dominating(0, a, b, visitor);
+	}
+
+	// only nodes whose subtrees straddle a in min, or that are children of visited nodes, may be visited without a result
+	private void dominating(int node, long a, long b, Visitor visitor) {
+		while (node != NONE && maxs[node] >= b && leastMins[node] <= a) {
+			if (mins[node] <= a) visitor.visit(indices[node], mins[node], maxs[node]);
+			int right = rights[node];
+			if (lefts[node]) {
+				dominating(node + 1, a, b, visitor);
+			}
+			node = right;
+		}
+	}
+
+}
@@ -6,6 +6,8 @@ import static java.lang.Math.min;
 import java.awt.Rectangle;
 import java.util.AbstractList;
 import java.util.List;
+import java.util.stream.LongStream;
+import java.util.stream.StreamSupport;
 
 public final class IntRect {
 
@@ -124,6 +126,14 @@ public final class IntRect {
 		return (minY + minY) / 2;
 	}
 
+	public long minimumPair() {
+		return IntPair.fromInts(minX, minY);
+	}
+
+	public long maximumPair() {
+		return IntPair.fromInts(maxX, maxY);
+	}
+
 	public IntCoords edgeCenter(IntDir edgeDir) {
 		switch (edgeDir) {
 		case LESS_X: return new IntCoords(minX     , centerY());
@@ -134,6 +144,16 @@ public final class IntRect {
 		}
 	}
 
+	public long edgeCenterPair(IntDir edgeDir) {
+		switch (edgeDir) {
+		case LESS_X: return IntPair.fromInts(minX     , centerY());
+		case MORE_X: return IntPair.fromInts(maxX     , centerY());
+		case LESS_Y: return IntPair.fromInts(centerX(), minY     );
+		case MORE_Y: return IntPair.fromInts(centerX(), maxY     );
+		default: throw new IllegalArgumentException();
+		}
+	}
+
 	public boolean isPoint() {
 		return minX == maxX && minY == maxY;
 	}
@@ -154,6 +174,10 @@ public final class IntRect {
 		return containsPoint(coords.x, coords.y);
 	}
 
+	public boolean containsPoint(long pair) {
+		return containsPoint(IntPair.xOf(pair), IntPair.yOf(pair));
+	}
+
 	public boolean containsUnit(int x, int y) {
 		return x >= minX && x < maxX && y>= minY && y < maxY;
 	}
@@ -162,6 +186,10 @@ public final class IntRect {
 		return containsUnit(coords.x, coords.y);
 	}
 
+	public boolean containsUnit(long pair) {
+		return containsUnit(IntPair.xOf(pair), IntPair.yOf(pair));
+	}
+
 	public boolean containsRect(IntRect that) {
 		return
 			this.minX <= that.minX &&
@@ -192,6 +220,10 @@ public final class IntRect {
 		return x == coords.x && y == coords.y ? coords : new IntCoords(x, y);
 	}
 
+	public long boundedPoint(long pair) {
+		return IntPair.fromInts(clamp(IntPair.xOf(pair), minX, maxX), clamp(IntPair.yOf(pair), minY, maxY));
+	}
+
 	public IntCoords boundedUnit(IntCoords coords) {
 		if (isDegenerate()) throw new IllegalStateException("degenerate");
 		int x = clamp(coords.x, minX, maxX - 1);
@@ -199,14 +231,115 @@ public final class IntRect {
 		return x == coords.x && y == coords.y ? coords : new IntCoords(x, y);
 	}
 
+	public long boundedUnit(long pair) {
+		if (isDegenerate()) throw new IllegalStateException("degenerate");
+		return IntPair.fromInts(clamp(IntPair.xOf(pair), minX, maxX - 1), clamp(IntPair.yOf(pair), minY, maxY - 1));
+	}
+
+	// coordinates outside the rect are first bounded to the nearest unit
+	public int rowMajorIndex(int x, int y) {
+		if (isDegenerate()) throw new IllegalStateException("degenerate");
+		x = clamp(x, minX, maxX - 1) - minX;
+		y = clamp(y, minY, maxY - 1) - minY;
+		return y * width() + x;
+	}
+
+	public int rowMajorIndex(long pair) {
+		return rowMajorIndex(IntPair.xOf(pair), IntPair.yOf(pair));
+	}
+
 	public int rowMajorIndex(IntCoords coords) {
-		coords = boundedUnit(coords).relativeTo(this);
-		return coords.y * width() + coords.x;
+		return rowMajorIndex(coords.x, coords.y);
+	}
+
+	public int columnMajorIndex(int x, int y) {
+		if (isDegenerate()) throw new IllegalStateException("degenerate");
+		x = clamp(x, minX, maxX - 1) - minX;
+		y = clamp(y, minY, maxY - 1) - minY;
+		return x * height() + y;
+	}
+
+	public int columnMajorIndex(long pair) {
+		return columnMajorIndex(IntPair.xOf(pair), IntPair.yOf(pair));
 	}
 
 	public int columnMajorIndex(IntCoords coords) {
-		coords = boundedUnit(coords).relativeTo(this);
-		return coords.x * height() + coords.y;
+		return columnMajorIndex(coords.x, coords.y);
+	}
+
+	// the unit at the supplied row major index as an IntPair
+	public long unitAtRowMajorIndex(int index) {
+		int width = width();
+		if (index < 0 || index >= width * height()) throw new IllegalArgumentException("invalid index");
+		return IntPair.fromInts(minX + index % width, minY + index / width);
+	}
+
+	// the unit at the supplied column major index as an IntPair
+	public long unitAtColumnMajorIndex(int index) {
+		int height = height();
+		if (index < 0 || index >= width() * height) throw new IllegalArgumentException("invalid index");
+		return IntPair.fromInts(minX + index / height, minY + index % height);
+	}
+
+	// curve indices are over the smallest square of power of two side, anchored at the minimum corner, that covers the rect
+	// they are only contiguous for rects of such squares; sides may not exceed 2^31
+
+	public long mortonIndex(int x, int y) {
+		if (isDegenerate()) throw new IllegalStateException("degenerate");
+		curveBits();
+		x = clamp(x, minX, maxX - 1) - minX;
+		y = clamp(y, minY, maxY - 1) - minY;
+		return IntCurves.mortonEncode(x, y);
+	}
+
+	public long mortonIndex(long pair) {
+		return mortonIndex(IntPair.xOf(pair), IntPair.yOf(pair));
+	}
+
+	public long mortonIndex(IntCoords coords) {
+		return mortonIndex(coords.x, coords.y);
+	}
+
+	public long hilbertIndex(int x, int y) {
+		if (isDegenerate()) throw new IllegalStateException("degenerate");
+		int bits = curveBits();
+		x = clamp(x, minX, maxX - 1) - minX;
+		y = clamp(y, minY, maxY - 1) - minY;
+		return IntCurves.hilbertEncode(bits, x, y);
+	}
+
+	public long hilbertIndex(long pair) {
+		return hilbertIndex(IntPair.xOf(pair), IntPair.yOf(pair));
+	}
+
+	public long hilbertIndex(IntCoords coords) {
+		return hilbertIndex(coords.x, coords.y);
+	}
+
+	// the unit at the supplied morton index as an IntPair, the index must identify a unit of the rect
+	public long unitAtMortonIndex(long index) {
+		if (isDegenerate()) throw new IllegalStateException("degenerate");
+		int bits = curveBits();
+		if (index < 0L || index >= 1L << 2 * bits) throw new IllegalArgumentException("invalid index");
+		return curveUnit(IntCurves.mortonDecodeX(index), IntCurves.mortonDecodeY(index));
+	}
+
+	// the unit at the supplied hilbert index as an IntPair, the index must identify a unit of the rect
+	public long unitAtHilbertIndex(long index) {
+		if (isDegenerate()) throw new IllegalStateException("degenerate");
+		int bits = curveBits();
+		if (index < 0L || index >= 1L << 2 * bits) throw new IllegalArgumentException("invalid index");
+		long pair = IntCurves.hilbertDecode(bits, index);
+		return curveUnit(IntPair.xOf(pair), IntPair.yOf(pair));
+	}
+
+	private int curveBits() {
+		return IntCurves.bitsFor(max((long) maxX - minX, (long) maxY - minY));
+	}
+
+	private long curveUnit(int x, int y) {
+		if (x >= (long) maxX - minX || y >= (long) maxY - minY) throw new IllegalArgumentException("index outside rect");
+		return IntPair.fromInts(minX + x, minY + y);
 	}
 
 	public IntRect translatedToOrigin() {
@@ -379,6 +512,46 @@ public final class IntRect {
 		};
 	}
 
+	// the streams below supply IntPair values and split on row (or column) boundaries
+
+	public LongStream unitStreamInRowOrder() {
+		return isDegenerate() ? LongStream.empty() :
+			StreamSupport.longStream(new IntRectSpliterators.Lines(minX, minY, width(), height(), true), false);
+	}
+
+	public LongStream unitStreamInColumnOrder() {
+		return isDegenerate() ? LongStream.empty() :
+			StreamSupport.longStream(new IntRectSpliterators.Lines(minX, minY, height(), width(), false), false);
+	}
+
+	// tiles are visited in row order, as are the units within each tile; tiles on the far edges may be smaller
+	public LongStream unitStreamInTiles(int tileWidth, int tileHeight) {
+		if (tileWidth <= 0) throw new IllegalArgumentException("non-positive tileWidth");
+		if (tileHeight <= 0) throw new IllegalArgumentException("non-positive tileHeight");
+		return isDegenerate() ? LongStream.empty() :
+			StreamSupport.longStream(new IntRectSpliterators.Tiles(this, tileWidth, tileHeight), false);
+	}
+
+	// units in order of increasing morton index
+	public LongStream unitStreamInMortonOrder() {
+		return isDegenerate() ? LongStream.empty() :
+			StreamSupport.longStream(new IntRectSpliterators.Curve(this, false), false);
+	}
+
+	// units in order of increasing hilbert index, consecutive units are always adjacent for rects of power of two square
+	public LongStream unitStreamInHilbertOrder() {
+		return isDegenerate() ? LongStream.empty() :
+			StreamSupport.longStream(new IntRectSpliterators.Curve(this, true), false);
+	}
+
+	public LongStream pointStreamInRowOrder() {
+		return StreamSupport.longStream(new IntRectSpliterators.Lines(minX, minY, width() + 1L, height() + 1L, true), false);
+	}
+
+	public LongStream pointStreamInColumnOrder() {
+		return StreamSupport.longStream(new IntRectSpliterators.Lines(minX, minY, height() + 1L, width() + 1L, false), false);
+	}
+
 	public Rectangle toRectangle() {
 		return new Rectangle(minX, minY, width(), height());
 	}
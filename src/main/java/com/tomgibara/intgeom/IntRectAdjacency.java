@@ -0,0 +1,353 @@
+package com.tomgibara.intgeom;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import com.tomgibara.intgeom.IntRectNavigator.Algorithm;
+import com.tomgibara.intgeom.IntRectNavigator.TaggedRect;
+
+// the neighbour of every rect in each direction, as the navigator would find it from that rect, precomputed for constant time lookup
+// rects are identified by indices that are stable while the rect remains present; the indices of removed rects are reused
+// adding a rect checks only those rects whose reach it touches, removing a rect searches again only for those rects that had it as a neighbour
+// not safe for concurrent modification
+public final class IntRectAdjacency<T> {
+
+	// statics
+
+	private static final int NONE = -1;
+	private static final IntDir[] DIRS_BY_ORDINAL = IntDir.values();
+	private static final int DIRS = DIRS_BY_ORDINAL.length;
+	private static final int TABLES = 2 * DIRS;
+	// exceeds any distance between ints, for searches that found no neighbour
+	private static final long UNBOUNDED = 1L << 33;
+
+	private static int table(IntDir dir, boolean strict) {
+		return strict ? DIRS + dir.ordinal() : dir.ordinal();
+	}
+
+	private static int sizeOf(Collection<?> rects) {
+		if (rects == null) throw new IllegalArgumentException("null rects");
+		return rects.size();
+	}
+
+	private static int clamp(long value) {
+		return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, value));
+	}
+
+	// fields
+
+	private final IntRectQuadtree<T> quadtree = new IntRectQuadtree<>(); // the current rects, for searching
+	private final IntRectQuadtree<Integer> reaches = new IntRectQuadtree<>(); // the reach of each rect, tagged with its index
+	private final Map<TaggedRect<T>, Integer> indices = new HashMap<>();
+	private TaggedRect<T>[] rects; // null at free indices
+	private TaggedRect<Integer>[] reachRects; // as held by reaches, null at free indices
+	private long[] seqs; // order of addition, for breaking ties as the navigator does
+	private final int[][] neighbours = new int[TABLES][]; // natural then strict, indexed by dir
+	private final int[][] distances = new int[TABLES][]; // the distance to each neighbour
+	private final int[][] positions = new int[TABLES][]; // the position of each rect among the dependents of its neighbour
+	private int[][] dependents; // for each rect, the rects that have it as a neighbour, as index * TABLES + table
+	private int[] dependentCounts;
+	private int[] free = new int[0]; // a stack of free indices
+	private int freeCount = 0;
+	private int limit = 0; // indices at and above the limit have never been used
+	private long nextSeq = 0L;
+
+	// constructors
+
+	public IntRectAdjacency() {
+		this(0);
+	}
+
+	@SuppressWarnings("unchecked")
+	private IntRectAdjacency(int capacity) {
+		rects = (TaggedRect<T>[]) new TaggedRect<?>[capacity];
+		reachRects = (TaggedRect<Integer>[]) new TaggedRect<?>[capacity];
+		seqs = new long[capacity];
+		for (int t = 0; t < TABLES; t++) {
+			neighbours[t] = new int[capacity];
+			distances[t] = new int[capacity];
+			positions[t] = new int[capacity];
+			Arrays.fill(neighbours[t], NONE);
+		}
+		dependents = new int[capacity][];
+		dependentCounts = new int[capacity];
+	}
+
+	// neighbours are searched for once the rects are all present, with ties favouring later rects, as per the navigator
+	public IntRectAdjacency(Collection<TaggedRect<T>> rects) {
+		this(sizeOf(rects));
+		if (rects.contains(null)) throw new IllegalArgumentException("null rect");
+		for (TaggedRect<T> rect : rects) {
+			if (!quadtree.add(rect)) continue;
+			int index = limit++;
+			this.rects[index] = rect;
+			seqs[index] = nextSeq++;
+			indices.put(rect, index);
+		}
+		for (int i = 0; i < limit; i++) {
+			search(i);
+		}
+		for (int i = 0; i < limit; i++) {
+			reachRects[i] = new TaggedRect<>(reach(i), i);
+			reaches.add(reachRects[i]);
+		}
+	}
+
+	// accessors
+
+	public int size() {
+		return indices.size();
+	}
+
+	public boolean isEmpty() {
+		return indices.isEmpty();
+	}
+
+	public boolean contains(TaggedRect<T> rect) {
+		if (rect == null) throw new IllegalArgumentException("null rect");
+		return indices.containsKey(rect);
+	}
+
+	// -1 if the rect is not present
+	public int indexOf(TaggedRect<T> rect) {
+		if (rect == null) throw new IllegalArgumentException("null rect");
+		Integer index = indices.get(rect);
+		return index == null ? NONE : index;
+	}
+
+	public TaggedRect<T> get(int index) {
+		checkIndex(index);
+		return rects[index];
+	}
+
+	// lookups
+
+	// the index of the neighbour, or -1 if there is none
+	public int neighbourIndex(int index, IntDir dir, Algorithm algo) {
+		checkIndex(index);
+		if (dir == null) throw new IllegalArgumentException("null dir");
+		if (algo == null) throw new IllegalArgumentException("null algo");
+		switch (algo) {
+		case NATURAL : return neighbours[table(dir, false)][index];
+		case STRICT  : return neighbours[table(dir, true )][index];
+		case PREFER_STRICT:
+			int neighbour = neighbours[table(dir, true)][index];
+			return neighbour == NONE ? neighbours[table(dir, false)][index] : neighbour;
+		default:
+			throw new IllegalStateException();
+		}
+	}
+
+	public Optional<TaggedRect<T>> neighbour(TaggedRect<T> rect, IntDir dir, Algorithm algo) {
+		int index = indexOf(rect);
+		if (index == NONE) throw new IllegalArgumentException("unknown rect");
+		int neighbour = neighbourIndex(index, dir, algo);
+		return neighbour == NONE ? Optional.empty() : Optional.of(rects[neighbour]);
+	}
+
+	// mutation
+
+	// false if the rect was already present
+	public boolean add(TaggedRect<T> rect) {
+		if (rect == null) throw new IllegalArgumentException("null rect");
+		if (!quadtree.add(rect)) return false;
+		int index = allocate();
+		rects[index] = rect;
+		seqs[index] = nextSeq++;
+		indices.put(rect, index);
+		search(index);
+		reachRects[index] = new TaggedRect<>(reach(index), index);
+		reaches.add(reachRects[index]);
+		// the new rect may displace the neighbours of those rects whose reach it touches
+		IntRect r = rect.rect;
+		List<TaggedRect<Integer>> touched = new ArrayList<>();
+		reaches.visitTouching(features(r), touched::add);
+		for (TaggedRect<Integer> reach : touched) {
+			int i = reach.tag;
+			if (i == index) continue;
+			boolean displaced = false;
+			for (int t = 0; t < TABLES; t++) {
+				IntDir dir = DIRS_BY_ORDINAL[t % DIRS];
+				int dist = IntRectTree.distance(rects[i].rect, r, dir, t >= DIRS);
+				if (dist < 0) continue;
+				int n = neighbours[t][i];
+				if (n == NONE || dist < distances[t][i] || dist == distances[t][i] && precedes(index, n, dir)) {
+					link(t, i, index, dist);
+					displaced = true;
+				}
+			}
+			if (displaced) updateReach(i);
+		}
+		return true;
+	}
+
+	// false if the rect was not present
+	public boolean remove(TaggedRect<T> rect) {
+		if (rect == null) throw new IllegalArgumentException("null rect");
+		if (!quadtree.remove(rect)) return false;
+		int index = indices.remove(rect);
+		reaches.remove(reachRects[index]);
+		reachRects[index] = null;
+		for (int t = 0; t < TABLES; t++) {
+			unlink(t, index);
+		}
+		// searching again moves each dependent to a new neighbour, or to none, so the dependents are consumed from the end
+		while (dependentCounts[index] > 0) {
+			int dependent = dependents[index][dependentCounts[index] - 1];
+			int i = dependent / TABLES;
+			int t = dependent % TABLES;
+			search(i, t, DIRS_BY_ORDINAL[t % DIRS], t >= DIRS);
+			updateReach(i);
+		}
+		rects[index] = null;
+		release(index);
+		return true;
+	}
+
+	public void clear() {
+		quadtree.clear();
+		reaches.clear();
+		indices.clear();
+		Arrays.fill(rects, 0, limit, null);
+		Arrays.fill(reachRects, 0, limit, null);
+		for (int t = 0; t < TABLES; t++) {
+			Arrays.fill(neighbours[t], 0, limit, NONE);
+		}
+		Arrays.fill(dependentCounts, 0, limit, 0);
+		freeCount = 0;
+		limit = 0;
+	}
+
+	// helpers
+
+	private void search(int index) {
+		for (int t = 0; t < TABLES; t++) {
+			search(index, t, DIRS_BY_ORDINAL[t % DIRS], t >= DIRS);
+		}
+	}
+
+	private void search(int index, int t, IntDir dir, boolean strict) {
+		IntRect start = rects[index].rect;
+		TaggedRect<T> found = quadtree.findFrom(start, dir, strict, null);
+		if (found == null) {
+			link(t, index, NONE, 0);
+		} else {
+			link(t, index, indices.get(found), IntRectTree.distance(start, found.rect, dir, strict));
+		}
+	}
+
+	// records the neighbour of rect i in table t, and i as a dependent of that neighbour
+	private void link(int t, int i, int neighbour, int dist) {
+		unlink(t, i);
+		if (neighbour == NONE) return;
+		neighbours[t][i] = neighbour;
+		distances[t][i] = dist;
+		int count = dependentCounts[neighbour];
+		int[] array = dependents[neighbour];
+		if (array == null) {
+			array = dependents[neighbour] = new int[4];
+		} else if (count == array.length) {
+			array = dependents[neighbour] = Arrays.copyOf(array, count * 2);
+		}
+		array[count] = i * TABLES + t;
+		positions[t][i] = count;
+		dependentCounts[neighbour] = count + 1;
+	}
+
+	private void unlink(int t, int i) {
+		int neighbour = neighbours[t][i];
+		if (neighbour == NONE) return;
+		neighbours[t][i] = NONE;
+		int[] array = dependents[neighbour];
+		int last = array[--dependentCounts[neighbour]];
+		int position = positions[t][i];
+		array[position] = last;
+		positions[last % TABLES][last / TABLES] = position;
+	}
+
+	// bounds the leading edge and center of any rect that is at least as close to rect i as one of its neighbours;
+	// for a strict search without a neighbour, the extent of the rect bounds the center
+	private IntRect reach(int i) {
+		IntRect r = rects[i].rect;
+		long cx = r.centerX();
+		long cy = r.centerY();
+		long minX = Long.MAX_VALUE;
+		long minY = Long.MAX_VALUE;
+		long maxX = Long.MIN_VALUE;
+		long maxY = Long.MIN_VALUE;
+		for (int t = 0; t < TABLES; t++) {
+			IntDir dir = DIRS_BY_ORDINAL[t % DIRS];
+			boolean aligned = t >= DIRS && neighbours[t][i] == NONE;
+			long d = neighbours[t][i] == NONE ? UNBOUNDED : distances[t][i];
+			long fromX, toX, fromY, toY;
+			if (dir.axis.horizontal) {
+				fromX = dir == IntDir.LESS_X ? r.minX - d : r.maxX;
+				toX = dir == IntDir.LESS_X ? r.minX : r.maxX + d;
+				fromY = aligned ? r.minY : cy - d;
+				toY = aligned ? r.maxY : cy + d;
+			} else {
+				fromY = dir == IntDir.LESS_Y ? r.minY - d : r.maxY;
+				toY = dir == IntDir.LESS_Y ? r.minY : r.maxY + d;
+				fromX = aligned ? r.minX : cx - d;
+				toX = aligned ? r.maxX : cx + d;
+			}
+			minX = Math.min(minX, fromX);
+			minY = Math.min(minY, fromY);
+			maxX = Math.max(maxX, toX);
+			maxY = Math.max(maxY, toY);
+		}
+		return new IntRect(clamp(minX), clamp(minY), clamp(maxX), clamp(maxY));
+	}
+
+	// bounds the edges, extent and center of a rect, any of which may fall within the reach of another
+	private static IntRect features(IntRect r) {
+		int cx = r.centerX();
+		int cy = r.centerY();
+		return new IntRect(Math.min(r.minX, cx), Math.min(r.minY, cy), Math.max(r.maxX, cx), Math.max(r.maxY, cy));
+	}
+
+	private void updateReach(int i) {
+		IntRect reach = reach(i);
+		if (!reach.equals(reachRects[i].rect)) reachRects[i] = reaches.move(reachRects[i], reach);
+	}
+
+	private boolean precedes(int i, int j, IntDir dir) {
+		long li = IntRectTree.lead(rects[i].rect, dir);
+		long lj = IntRectTree.lead(rects[j].rect, dir);
+		return li == lj ? seqs[i] > seqs[j] : li > lj;
+	}
+
+	private int allocate() {
+		if (freeCount > 0) return free[--freeCount];
+		if (limit == rects.length) {
+			int capacity = Math.max(16, limit * 2);
+			rects = Arrays.copyOf(rects, capacity);
+			reachRects = Arrays.copyOf(reachRects, capacity);
+			seqs = Arrays.copyOf(seqs, capacity);
+			for (int t = 0; t < TABLES; t++) {
+				neighbours[t] = Arrays.copyOf(neighbours[t], capacity);
+				distances[t] = Arrays.copyOf(distances[t], capacity);
+				positions[t] = Arrays.copyOf(positions[t], capacity);
+				Arrays.fill(neighbours[t], limit, capacity, NONE);
+			}
+			dependents = Arrays.copyOf(dependents, capacity);
+			dependentCounts = Arrays.copyOf(dependentCounts, capacity);
+		}
+		return limit++;
+	}
+
+	private void release(int index) {
+		if (freeCount == free.length) free = Arrays.copyOf(free, Math.max(16, freeCount * 2));
+		free[freeCount++] = index;
+	}
+
+	private void checkIndex(int index) {
+		if (index < 0 || index >= limit || rects[index] == null) throw new IllegalArgumentException("invalid index");
+	}
+
+}
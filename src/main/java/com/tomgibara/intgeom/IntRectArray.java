@@ -0,0 +1,251 @@
+package com.tomgibara.intgeom;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.stream.IntStream;
+
+// a growable list of rects, stored without per-rect objects
+public final class IntRectArray {
+
+	// statics
+
+	private static final int DEFAULT_CAPACITY = 16;
+
+	private static int sizeOf(Collection<IntRect> rects) {
+		if (rects == null) throw new IllegalArgumentException("null rects");
+		return rects.size();
+	}
+
+	// fields
+
+	private int[] minXs;
+	private int[] minYs;
+	private int[] maxXs;
+	private int[] maxYs;
+	private int size = 0;
+
+	// constructors
+
+	public IntRectArray() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	public IntRectArray(int capacity) {
+		if (capacity < 0) throw new IllegalArgumentException("negative capacity");
+		minXs = new int[capacity];
+		minYs = new int[capacity];
+		maxXs = new int[capacity];
+		maxYs = new int[capacity];
+	}
+
+	public IntRectArray(Collection<IntRect> rects) {
+		this(sizeOf(rects));
+		for (IntRect rect : rects) {
+			add(rect);
+		}
+	}
+
+	// accessors
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public int minX(int index) { checkIndex(index); return minXs[index]; }
+	public int minY(int index) { checkIndex(index); return minYs[index]; }
+	public int maxX(int index) { checkIndex(index); return maxXs[index]; }
+	public int maxY(int index) { checkIndex(index); return maxYs[index]; }
+
+	public IntRect get(int index) {
+		checkIndex(index);
+		return new IntRect(minXs[index], minYs[index], maxXs[index], maxYs[index]);
+	}
+
+	// mutation
+
+	public void add(IntRect rect) {
+		if (rect == null) throw new IllegalArgumentException("null rect");
+		append(rect.minX, rect.minY, rect.maxX, rect.maxY);
+	}
+
+	public void add(int minX, int minY, int maxX, int maxY) {
+		if (maxX < minX) throw new IllegalArgumentException("maxX less than minX");
+		if (maxY < minY) throw new IllegalArgumentException("maxY less than minY");
+		append(minX, minY, maxX, maxY);
+	}
+
+	private void append(int minX, int minY, int maxX, int maxY) {
+		if (size == minXs.length) ensureCapacity(size + 1);
+		minXs[size] = minX;
+		minYs[size] = minY;
+		maxXs[size] = maxX;
+		maxYs[size] = maxY;
+		size++;
+	}
+
+	public void set(int index, IntRect rect) {
+		checkIndex(index);
+		if (rect == null) throw new IllegalArgumentException("null rect");
+		minXs[index] = rect.minX;
+		minYs[index] = rect.minY;
+		maxXs[index] = rect.maxX;
+		maxYs[index] = rect.maxY;
+	}
+
+	// moves the last rect into the vacated index, so ordering is not preserved
+	public void removeUnordered(int index) {
+		checkIndex(index);
+		int last = --size;
+		minXs[index] = minXs[last];
+		minYs[index] = minYs[last];
+		maxXs[index] = maxXs[last];
+		maxYs[index] = maxYs[last];
+	}
+
+	public void clear() {
+		size = 0;
+	}
+
+	public void ensureCapacity(int capacity) {
+		int length = minXs.length;
+		if (capacity <= length) return;
+		int newLength = (int) Math.min(Math.max((long) length + (length >> 1), capacity), Integer.MAX_VALUE - 8);
+		if (newLength < capacity) throw new IllegalArgumentException("capacity too large");
+		minXs = Arrays.copyOf(minXs, newLength);
+		minYs = Arrays.copyOf(minYs, newLength);
+		maxXs = Arrays.copyOf(maxXs, newLength);
+		maxYs = Arrays.copyOf(maxYs, newLength);
+	}
+
+	public void trimToSize() {
+		if (size == minXs.length) return;
+		minXs = Arrays.copyOf(minXs, size);
+		minYs = Arrays.copyOf(minYs, size);
+		maxXs = Arrays.copyOf(maxXs, size);
+		maxYs = Arrays.copyOf(maxYs, size);
+	}
+
+	// predicates, as per IntRect
+
+	public boolean containsPoint(int index, int x, int y) {
+		checkIndex(index);
+		return x >= minXs[index] && x <= maxXs[index] && y >= minYs[index] && y <= maxYs[index];
+	}
+
+	public boolean containsUnit(int index, int x, int y) {
+		checkIndex(index);
+		return x >= minXs[index] && x < maxXs[index] && y >= minYs[index] && y < maxYs[index];
+	}
+
+	public boolean containsRect(int index, IntRect that) {
+		checkIndex(index);
+		if (that == null) throw new IllegalArgumentException("null that");
+		return
+			minXs[index] <= that.minX &&
+			maxXs[index] >= that.maxX &&
+			minYs[index] <= that.minY &&
+			maxYs[index] >= that.maxY;
+	}
+
+	public boolean intersectsRect(int index, IntRect that) {
+		checkIndex(index);
+		if (that == null) throw new IllegalArgumentException("null that");
+		return
+			minXs[index] < that.maxX &&
+			maxXs[index] > that.minX &&
+			minYs[index] < that.maxY &&
+			maxYs[index] > that.minY;
+	}
+
+	// bulk operations
+
+	public Optional<IntRect> bounds() {
+		if (size == 0) return Optional.empty();
+		int minX = minXs[0];
+		int minY = minYs[0];
+		int maxX = maxXs[0];
+		int maxY = maxYs[0];
+		for (int i = 1; i < size; i++) {
+			minX = Math.min(minX, minXs[i]);
+			minY = Math.min(minY, minYs[i]);
+			maxX = Math.max(maxX, maxXs[i]);
+			maxY = Math.max(maxY, maxYs[i]);
+		}
+		return Optional.of(new IntRect(minX, minY, maxX, maxY));
+	}
+
+	public void translateAll(int x, int y) {
+		if (x != 0) {
+			for (int i = 0; i < size; i++) {
+				minXs[i] += x;
+				maxXs[i] += x;
+			}
+		}
+		if (y != 0) {
+			for (int i = 0; i < size; i++) {
+				minYs[i] += y;
+				maxYs[i] += y;
+			}
+		}
+	}
+
+	public void translateAll(IntVector vector) {
+		if (vector == null) throw new IllegalArgumentException("null vector");
+		translateAll(vector.x, vector.y);
+	}
+
+	public int countContainingPoint(int x, int y) {
+		int count = 0;
+		for (int i = 0; i < size; i++) {
+			if (x >= minXs[i] && x <= maxXs[i] && y >= minYs[i] && y <= maxYs[i]) count++;
+		}
+		return count;
+	}
+
+	public int countIntersecting(IntRect rect) {
+		if (rect == null) throw new IllegalArgumentException("null rect");
+		int count = 0;
+		for (int i = 0; i < size; i++) {
+			if (minXs[i] < rect.maxX && maxXs[i] > rect.minX && minYs[i] < rect.maxY && maxYs[i] > rect.minY) count++;
+		}
+		return count;
+	}
+
+	// the streams are invalidated by any subsequent modification of the array
+
+	public IntStream indicesContainingPoint(int x, int y) {
+		return IntStream.range(0, size).filter(i -> x >= minXs[i] && x <= maxXs[i] && y >= minYs[i] && y <= maxYs[i]);
+	}
+
+	public IntStream indicesIntersecting(IntRect rect) {
+		if (rect == null) throw new IllegalArgumentException("null rect");
+		return IntStream.range(0, size).filter(i -> minXs[i] < rect.maxX && maxXs[i] > rect.minX && minYs[i] < rect.maxY && maxYs[i] > rect.minY);
+	}
+
+	public IntStream indicesContainedBy(IntRect rect) {
+		if (rect == null) throw new IllegalArgumentException("null rect");
+		return IntStream.range(0, size).filter(i -> rect.minX <= minXs[i] && rect.maxX >= maxXs[i] && rect.minY <= minYs[i] && rect.maxY >= maxYs[i]);
+	}
+
+	private void checkIndex(int index) {
+		if (index < 0 || index >= size) throw new IllegalArgumentException("invalid index");
+	}
+
+	// object methods
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("[");
+		for (int i = 0; i < size; i++) {
+			if (i > 0) sb.append(", ");
+			sb.append('{').append(get(i)).append('}');
+		}
+		return sb.append(']').toString();
+	}
+
+}
@@ -3,12 +3,12 @@ package com.tomgibara.intgeom;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Comparator;
-import java.util.EnumMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Stream;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
 
 public class IntRectNavigator<T> {
 
@@ -18,13 +18,6 @@ public class IntRectNavigator<T> {
 		PREFER_STRICT; // first attempts STRICT, then NATURAL
 	}
 
-	private static int naturalDistance(IntRect from, IntRect to, IntDir dir) {
-		if (from.intersectsRect(to)) return 0;
-		IntCoords a = from.edgeCenter(dir);
-		IntCoords b = to.edgeCenter(dir.reverse());
-		return a.vectorTo(b).l1Norm();
-	}
-
 	public static class TaggedRect<T> {
 
 		public final IntRect rect;
@@ -42,25 +35,130 @@ public class IntRectNavigator<T> {
 		}
 	}
 
-	private static final Map<IntDir, Comparator<TaggedRect<?>>> comparators = new EnumMap<>(IntDir.class);
-	static {
-		for (IntDir dir : IntDir.values()) {
-			comparators.put(dir, Comparator.comparing(r -> r.rect, dir.rectComparator));
+	public static final class CacheStats {
+
+		public final long hits;
+		public final long misses;
+		public final long evictions;
+
+		private CacheStats(long hits, long misses, long evictions) {
+			this.hits = hits;
+			this.misses = misses;
+			this.evictions = evictions;
+		}
+
+		@Override
+		public String toString() {
+			return "hits: " + hits + ", misses: " + misses + ", evictions: " + evictions;
+		}
+	}
+
+	// receives measurements from a navigator, every method does nothing by default
+	// methods may be called concurrently from the threads that query the navigator
+	public interface Listener {
+
+		// the time taken to build the index over the rects of an array backed navigator
+		default void indexBuilt(int rectCount, long nanos) { }
+
+		// rects scanned includes those behind the start and those failing the strict test; all are zero for cached results
+		default void queryCompleted(IntDir dir, Algorithm algo, long nanos, int scanned, int behind, int unaligned) { }
+
+		default void batchCompleted(IntDir dir, Algorithm algo, int count, long nanos) { }
+
+	}
+
+	// counts query latencies in buckets that double in width, bucket b holds latencies of at least 2^b nanoseconds
+	public static final class LatencyHistogram implements Listener {
+
+		private final LongAdder[] buckets = new LongAdder[Long.SIZE];
+
+		public LatencyHistogram() {
+			for (int b = 0; b < buckets.length; b++) {
+				buckets[b] = new LongAdder();
+			}
+		}
+
+		@Override
+		public void queryCompleted(IntDir dir, Algorithm algo, long nanos, int scanned, int behind, int unaligned) {
+			buckets[Long.SIZE - 1 - Long.numberOfLeadingZeros(Math.max(nanos, 1L))].increment();
+		}
+
+		// a snapshot, indexed by bucket
+		public long[] counts() {
+			long[] counts = new long[buckets.length];
+			for (int b = 0; b < counts.length; b++) {
+				counts[b] = buckets[b].sum();
+			}
+			return counts;
+		}
+
+		public void reset() {
+			for (LongAdder bucket : buckets) {
+				bucket.reset();
+			}
 		}
 	}
 
-	private final TaggedRect<T>[] array;
-	private final Map<IntDir, TaggedRect<T>[]> arrays;
+	private final TaggedRect<T>[] array; // null if backed by a quadtree
+	private final IntRectQuadtree<T> quadtree; // null unless backed by a quadtree
+	private final Cache<T> cache; // null unless cached
+	private final Listener listener; // null unless measured
+	private volatile IntRectTree<T> tree; // lazily populated unless eager
 
 	public IntRectNavigator(TaggedRect<T>... rects) {
 		this(Arrays.asList(rects));
 	}
 
 	public IntRectNavigator(Collection<TaggedRect<T>> rects) {
+		this(rects, false);
+	}
+
+	// an eager navigator builds its index on construction
+	public IntRectNavigator(Collection<TaggedRect<T>> rects, boolean eager) {
 		if (rects == null) throw new IllegalArgumentException("null rects");
 		if (rects.contains(null)) throw new IllegalArgumentException("null rect");
 		array = (TaggedRect[]) rects.toArray(new TaggedRect<?>[rects.size()]);
-		arrays = new EnumMap<>(IntDir.class); // lazily populated
+		quadtree = null;
+		cache = null;
+		listener = null;
+		if (eager && array.length > 0) tree = new IntRectTree<>(array);
+	}
+
+	// searches the current contents of the quadtree, so changes to it require no rebuild
+	public IntRectNavigator(IntRectQuadtree<T> quadtree) {
+		if (quadtree == null) throw new IllegalArgumentException("null quadtree");
+		array = null;
+		this.quadtree = quadtree;
+		cache = null;
+		listener = null;
+	}
+
+	private IntRectNavigator(IntRectNavigator<T> that, Cache<T> cache, Listener listener) {
+		array = that.array;
+		quadtree = that.quadtree;
+		tree = that.tree;
+		this.cache = cache;
+		this.listener = listener;
+	}
+
+	// a navigator over the same rects that memoizes up to approximately capacity results, evicting the least recently used
+	// results are discarded whenever a backing quadtree is modified
+	public IntRectNavigator<T> cached(int capacity) {
+		if (capacity < 1) throw new IllegalArgumentException("non-positive capacity");
+		if (array != null && array.length > 0) tree(); // share the index
+		return new IntRectNavigator<>(this, new Cache<>(capacity), listener);
+	}
+
+	// a navigator over the same rects, sharing any cache, that reports to the listener
+	// an index that has not yet been built is built independently, so that its build is reported
+	public IntRectNavigator<T> withListener(Listener listener) {
+		if (listener == null) throw new IllegalArgumentException("null listener");
+		return new IntRectNavigator<>(this, cache, listener);
+	}
+
+	// empty if the navigator is not cached
+	public Optional<CacheStats> cacheStats() {
+		return cache == null ? Optional.empty() : Optional.of(cache.stats());
 	}
 
 	public Optional<TaggedRect<T>> findFrom(IntRect start, IntDir dir, Algorithm algo) {
@@ -68,46 +166,192 @@ public class IntRectNavigator<T> {
 		if (dir == null) throw new IllegalArgumentException("null dir");
 		if (algo == null) throw new IllegalArgumentException("null algo");
 
+		if (listener == null) return cache == null ? search(start, dir, algo, null) : cache.get(this, start, dir, algo, null);
+		long time = System.nanoTime();
+		IntRectTree.Tally tally = new IntRectTree.Tally();
+		Optional<TaggedRect<T>> rect = cache == null ? search(start, dir, algo, tally) : cache.get(this, start, dir, algo, tally);
+		listener.queryCompleted(dir, algo, System.nanoTime() - time, tally.scanned, tally.behind, tally.unaligned);
+		return rect;
+	}
+
+	// results are in the order of the starts, queries are run in parallel on the common fork-join pool
+	// a backing quadtree must not be modified while they run
+	public List<Optional<TaggedRect<T>>> findFrom(List<IntRect> starts, IntDir dir, Algorithm algo) {
+		if (starts == null) throw new IllegalArgumentException("null starts");
+		if (starts.contains(null)) throw new IllegalArgumentException("null start");
+		if (dir == null) throw new IllegalArgumentException("null dir");
+		if (algo == null) throw new IllegalArgumentException("null algo");
+
+		long time = listener == null ? 0L : System.nanoTime();
+		if (array != null && array.length > 0) tree(); // build before forking
+		List<Optional<TaggedRect<T>>> rects = starts.parallelStream().map(start -> findFrom(start, dir, algo)).collect(Collectors.toList());
+		if (listener != null) listener.batchCompleted(dir, algo, starts.size(), System.nanoTime() - time);
+		return rects;
+	}
+
+	public List<TaggedRect<T>> allTaggedRects() {
+		if (quadtree != null) return quadtree.allTaggedRects();
+		return Collections.unmodifiableList(Arrays.asList(array));
+	}
+
+	// the neighbours of every rect, precomputed; the adjacency is independent of the navigator and may be modified freely
+	public IntRectAdjacency<T> adjacency() {
+		return new IntRectAdjacency<>(allTaggedRects());
+	}
+
+	// the index is immutable, so locking is only needed to avoid building it more than once
+	private IntRectTree<T> tree() {
+		IntRectTree<T> tree = this.tree;
+		if (tree == null) {
+			synchronized (array) {
+				tree = this.tree;
+				if (tree == null) {
+					long time = listener == null ? 0L : System.nanoTime();
+					this.tree = tree = new IntRectTree<>(array);
+					if (listener != null) listener.indexBuilt(array.length, System.nanoTime() - time);
+				}
+			}
+		}
+		return tree;
+	}
+
+	// the tally may be null
+	private Optional<TaggedRect<T>> search(IntRect start, IntDir dir, Algorithm algo, IntRectTree.Tally tally) {
 		switch (algo) {
-		case NATURAL      : return Optional.ofNullable(findFrom(start, dir, false));
-		case STRICT       : return Optional.ofNullable(findFrom(start, dir, true ));
+		case NATURAL      : return Optional.ofNullable(findFrom(start, dir, false, tally));
+		case STRICT       : return Optional.ofNullable(findFrom(start, dir, true , tally));
 		case PREFER_STRICT:
-			TaggedRect<T> rect = findFrom(start, dir, true);
-			return rect == null ? Optional.ofNullable(findFrom(start, dir, false)) : Optional.of(rect);
+			TaggedRect<T> rect = findFrom(start, dir, true, tally);
+			return rect == null ? Optional.ofNullable(findFrom(start, dir, false, tally)) : Optional.of(rect);
 		default:
 			throw new IllegalStateException();
 		}
 	}
 
-	public List<TaggedRect<T>> allTaggedRects() {
-		return Collections.unmodifiableList(Arrays.asList(array));
+	// the closest rect by the distance between centres of edges, ties favour rects that extend furthest in dir
+	private TaggedRect<T> findFrom(IntRect start, IntDir dir, boolean strict, IntRectTree.Tally tally) {
+		if (quadtree != null) return quadtree.findFrom(start, dir, strict, tally);
+		return array.length == 0 ? null : tree().findFrom(start, dir, strict, tally);
+	}
+
+	// identifies the rects being navigated
+	private long version() {
+		return quadtree == null ? 0L : quadtree.modCount();
+	}
+
+	// inner classes
+
+	private static final class Query {
+
+		final IntRect start;
+		final IntDir dir;
+		final Algorithm algo;
+
+		Query(IntRect start, IntDir dir, Algorithm algo) {
+			this.start = start;
+			this.dir = dir;
+			this.algo = algo;
+		}
+
+		@Override
+		public int hashCode() {
+			return (start.hashCode() * 31 + dir.ordinal()) * 31 + algo.ordinal();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (obj == this) return true;
+			if (!(obj instanceof Query)) return false;
+			Query that = (Query) obj;
+			return this.dir == that.dir && this.algo == that.algo && this.start.equals(that.start);
+		}
+	}
+
+	private static final class Result<T> {
+
+		final long version;
+		final Optional<TaggedRect<T>> rect;
+
+		Result(long version, Optional<TaggedRect<T>> rect) {
+			this.version = version;
+			this.rect = rect;
+		}
 	}
 
-	private TaggedRect<T>[] array(IntDir dir) {
-		return arrays.computeIfAbsent(dir, d -> {
-			TaggedRect<T>[] a = array.clone();
-			Arrays.sort(a, comparators.get(dir));
-			return a;
-		});
-	}
-
-	private TaggedRect<T> findFrom(IntRect start, IntDir dir, boolean strict) {
-		IntAxis axis = dir.axis;
-		TaggedRect<T>[] array = array(dir);
-		TaggedRect<T> best = null;
-		int leastDist = Integer.MAX_VALUE;
-		for (int i = array.length - 1; i >= 0; i--) {
-			TaggedRect<T> tr = array[i];
-			int gap = dir.gap(start, tr.rect);
-			if (gap < 0) continue; // we've gone backwards, so we're out of candidates (or not??) //TODO fix this
-			if (strict && !start.projectAlongAxis(axis).intersects(tr.rect.projectAlongAxis(axis))) continue;
-			//TODO should improve on simply being the closest in gap
-			int dist = naturalDistance(start, tr.rect, dir);
-			if (dist < leastDist) {
-				best = tr;
-				leastDist = dist;
+	// least recently used queries are evicted from each of a fixed number of independently locked segments
+	private static final class Cache<T> {
+
+		private static final int SEGMENTS = 16;
+
+		private final Segment<T>[] segments;
+		private final LongAdder hits = new LongAdder();
+		private final LongAdder misses = new LongAdder();
+		private final LongAdder evictions = new LongAdder();
+		private volatile long version = 0L;
+
+		@SuppressWarnings("unchecked")
+		Cache(int capacity) {
+			int count = Math.min(SEGMENTS, capacity);
+			segments = (Segment<T>[]) new Segment<?>[count];
+			for (int i = 0; i < count; i++) {
+				// distribute the capacity evenly
+				segments[i] = new Segment<>(capacity / count + (i < capacity % count ? 1 : 0), evictions);
+			}
+		}
+
+		Optional<TaggedRect<T>> get(IntRectNavigator<T> navigator, IntRect start, IntDir dir, Algorithm algo, IntRectTree.Tally tally) {
+			long version = navigator.version();
+			if (version != this.version) {
+				// discard results for earlier rects
+				for (Segment<T> segment : segments) {
+					synchronized (segment) {
+						segment.clear();
+					}
+				}
+				this.version = version;
+			}
+			Query query = new Query(start, dir, algo);
+			int hash = query.hashCode();
+			Segment<T> segment = segments[((hash ^ hash >>> 16) & 0x7fffffff) % segments.length];
+			Result<T> result;
+			synchronized (segment) {
+				result = segment.get(query);
+			}
+			if (result != null && result.version == version) {
+				hits.increment();
+				return result.rect;
 			}
+			misses.increment();
+			Optional<TaggedRect<T>> rect = navigator.search(start, dir, algo, tally);
+			synchronized (segment) {
+				segment.put(query, new Result<>(version, rect));
+			}
+			return rect;
+		}
+
+		CacheStats stats() {
+			return new CacheStats(hits.sum(), misses.sum(), evictions.sum());
+		}
+	}
+
+	private static final class Segment<T> extends LinkedHashMap<Query, Result<T>> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int capacity;
+		private final LongAdder evictions;
+
+		Segment(int capacity, LongAdder evictions) {
+			super(16, 0.75f, true);
+			this.capacity = capacity;
+			this.evictions = evictions;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Query, Result<T>> eldest) {
+			if (size() <= capacity) return false;
+			evictions.increment();
+			return true;
 		}
-		return best;
 	}
 }
@@ -0,0 +1,523 @@
+package com.tomgibara.intgeom;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+// packs rects of given dimensions into one or more bins of a fixed size, opening bins as required
+public final class IntRectPacker {
+
+	// statics
+
+	public enum Strategy {
+		// best short side fit against a list of maximal free rects; packs tightly
+		MAX_RECTS,
+		// bottom-left placement against a skyline of segments; faster, but cannot fill the space beneath overhangs
+		SKYLINE
+	}
+
+	public static final class Placement {
+
+		public final int bin;
+		public final IntRect rect; // in the coordinates of the bin, which has its origin at zero
+
+		Placement(int bin, IntRect rect) {
+			this.bin = bin;
+			this.rect = rect;
+		}
+
+		@Override
+		public int hashCode() {
+			return bin + 31 * rect.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (obj == this) return true;
+			if (!(obj instanceof Placement)) return false;
+			Placement that = (Placement) obj;
+			return this.bin == that.bin && this.rect.equals(that.rect);
+		}
+
+		@Override
+		public String toString() {
+			return bin + ":" + rect;
+		}
+	}
+
+	// fields
+
+	public final IntDimensions binSize;
+	public final Strategy strategy;
+
+	private final List<Bin> bins = new ArrayList<>();
+
+	// constructors
+
+	public IntRectPacker(IntDimensions binSize, Strategy strategy) {
+		if (binSize == null) throw new IllegalArgumentException("null binSize");
+		if (binSize.isDegenerate()) throw new IllegalArgumentException("degenerate binSize");
+		if (strategy == null) throw new IllegalArgumentException("null strategy");
+		this.binSize = binSize;
+		this.strategy = strategy;
+	}
+
+	// accessors
+
+	public int binCount() {
+		return bins.size();
+	}
+
+	public long usedArea(int bin) {
+		if (bin < 0 || bin >= bins.size()) throw new IllegalArgumentException("invalid bin");
+		return bins.get(bin).usedArea;
+	}
+
+	// packing
+
+	// degenerate dimensions occupy no space and are placed at the origin of the first bin
+	public Placement insert(IntDimensions dimensions) {
+		checkDimensions(dimensions);
+		return place(dimensions.width, dimensions.height);
+	}
+
+	// placements are returned in the order of the supplied dimensions, but are made largest first for a better packing
+	public List<Placement> insertAll(List<IntDimensions> dimensions) {
+		if (dimensions == null) throw new IllegalArgumentException("null dimensions");
+		int size = dimensions.size();
+		IntDimensions[] dims = dimensions.toArray(new IntDimensions[size]);
+		for (IntDimensions d : dims) checkDimensions(d);
+		Integer[] order = new Integer[size];
+		for (int i = 0; i < size; i++) order[i] = i;
+		Arrays.sort(order, (a, b) -> {
+			IntDimensions da = dims[a];
+			IntDimensions db = dims[b];
+			int c = Integer.compare(Math.max(db.width, db.height), Math.max(da.width, da.height));
+			return c != 0 ? c : Integer.compare(Math.min(db.width, db.height), Math.min(da.width, da.height));
+		});
+		Placement[] placements = new Placement[size];
+		for (Integer i : order) {
+			placements[i] = place(dims[i].width, dims[i].height);
+		}
+		return Collections.unmodifiableList(Arrays.asList(placements));
+	}
+
+	public void clear() {
+		bins.clear();
+	}
+
+	private void checkDimensions(IntDimensions dimensions) {
+		if (dimensions == null) throw new IllegalArgumentException("null dimensions");
+		if (!dimensions.metBy(binSize)) throw new IllegalArgumentException("dimensions exceed binSize");
+	}
+
+	// first fit over the bins, each of which cheaply rejects rects that cannot fit
+	private Placement place(int width, int height) {
+		if (width == 0 || height == 0) {
+			if (bins.isEmpty()) bins.add(newBin());
+			return new Placement(0, new IntRect(0, 0, width, height));
+		}
+		for (int i = 0; i < bins.size(); i++) {
+			Bin bin = bins.get(i);
+			if (!bin.mayFit(width, height)) continue;
+			IntRect rect = bin.place(width, height);
+			if (rect != null) return new Placement(i, rect);
+			bin.failed(width, height);
+		}
+		Bin bin = newBin();
+		bins.add(bin);
+		return new Placement(bins.size() - 1, bin.place(width, height));
+	}
+
+	private Bin newBin() {
+		switch (strategy) {
+		case MAX_RECTS: return new MaxRectsBin(binSize.width, binSize.height);
+		case SKYLINE  : return new SkylineBin(binSize.width, binSize.height);
+		default: throw new IllegalStateException();
+		}
+	}
+
+	// inner classes
+
+	private static abstract class Bin {
+
+		// the number of failed placements remembered by a bin
+		private static final int FAILURES = 16;
+
+		final int width;
+		final int height;
+		// no rect wider or taller than these can be placed
+		int maxFreeWidth;
+		int maxFreeHeight;
+		long usedArea = 0L;
+
+		// free space only shrinks, so a rect no smaller than one that failed to fit will also fail
+		private final int[] failedWidths = new int[FAILURES];
+		private final int[] failedHeights = new int[FAILURES];
+		private int failedCount = 0;
+		private int failedNext = 0; // overwritten once all are in use
+
+		Bin(int width, int height) {
+			this.width = width;
+			this.height = height;
+			maxFreeWidth = width;
+			maxFreeHeight = height;
+		}
+
+		boolean mayFit(int w, int h) {
+			if (w > maxFreeWidth || h > maxFreeHeight) return false;
+			for (int i = 0; i < failedCount; i++) {
+				if (w >= failedWidths[i] && h >= failedHeights[i]) return false;
+			}
+			return true;
+		}
+
+		void failed(int w, int h) {
+			// discard any failures that this one subsumes
+			for (int i = 0; i < failedCount; ) {
+				if (failedWidths[i] >= w && failedHeights[i] >= h) {
+					failedCount--;
+					failedWidths[i] = failedWidths[failedCount];
+					failedHeights[i] = failedHeights[failedCount];
+				} else {
+					i++;
+				}
+			}
+			int i;
+			if (failedCount < FAILURES) {
+				i = failedCount++;
+			} else {
+				i = failedNext;
+				failedNext = (failedNext + 1) % FAILURES;
+			}
+			failedWidths[i] = w;
+			failedHeights[i] = h;
+		}
+
+		// null if the rect cannot be placed
+		abstract IntRect place(int w, int h);
+	}
+
+	private static final class MaxRectsBin extends Bin {
+
+		// the number of cells along each side of the grid that indexes the free rects
+		private static final int GRID = 64;
+		private static final int LARGE = -1;
+
+		// free rects, possibly overlapping, none contained in another
+		private int[] xs = new int[16];
+		private int[] ys = new int[16];
+		private int[] ws = new int[16];
+		private int[] hs = new int[16];
+		private int count = 0;
+		// free rects that fit within a cell are bucketed by the cell holding their minimum corner, others are kept apart as large
+		private final int cellWidth;
+		private final int cellHeight;
+		private final int columns;
+		private final int[][] cells;
+		private final int[] cellCounts;
+		private int[] larges = new int[16];
+		private int largeCount = 0;
+		// the bucket of each free rect (a cell or LARGE) and its position there
+		private int[] buckets = new int[16];
+		private int[] positions = new int[16];
+		// kept free rects that touch the most recently placed rect
+		private int[] abuttings = new int[16];
+		private int abuttingCount = 0;
+		// free rects that overlap the most recently placed rect
+		private int[] overlappings = new int[16];
+		private int overlappingCount = 0;
+
+		MaxRectsBin(int width, int height) {
+			super(width, height);
+			// dimensions are positive, so these divisions round up without overflowing
+			cellWidth = (width - 1) / GRID + 1;
+			cellHeight = (height - 1) / GRID + 1;
+			columns = (width - 1) / cellWidth + 1;
+			int rows = (height - 1) / cellHeight + 1;
+			cells = new int[columns * rows][];
+			cellCounts = new int[columns * rows];
+			add(0, 0, width, height);
+		}
+
+		@Override
+		IntRect place(int w, int h) {
+			int best = -1;
+			int bestShort = Integer.MAX_VALUE;
+			int bestLong = Integer.MAX_VALUE;
+			for (int i = 0; i < count; i++) {
+				int dw = ws[i] - w;
+				int dh = hs[i] - h;
+				if ((dw | dh) < 0) continue;
+				int s = Math.min(dw, dh);
+				int l = Math.max(dw, dh);
+				if (s < bestShort || s == bestShort && l < bestLong) {
+					best = i;
+					bestShort = s;
+					bestLong = l;
+				}
+			}
+			if (best < 0) {
+				// tighten the bounds that let the bin reject rects without searching
+				int maxW = 0;
+				int maxH = 0;
+				for (int i = 0; i < count; i++) {
+					maxW = Math.max(maxW, ws[i]);
+					maxH = Math.max(maxH, hs[i]);
+				}
+				maxFreeWidth = maxW;
+				maxFreeHeight = maxH;
+				return null;
+			}
+			int x = xs[best];
+			int y = ys[best];
+			split(x, y, x + w, y + h);
+			usedArea += (long) w * h;
+			return new IntRect(x, y, x + w, y + h);
+		}
+
+		// replaces every free rect that overlaps the placed rect with the maximal rects of its remainder
+		private void split(int minX, int minY, int maxX, int maxY) {
+			abuttingCount = 0;
+			overlappingCount = 0;
+			for (int k = 0; k < largeCount; k++) {
+				classify(larges[k], minX, minY, maxX, maxY);
+			}
+			// a small free rect that touches the placed rect has its minimum corner no more than a cell before it
+			int fromColumn = Math.max(minX - cellWidth, 0) / cellWidth;
+			int toColumn = Math.min(maxX / cellWidth, columns - 1);
+			int fromRow = Math.max(minY - cellHeight, 0) / cellHeight;
+			int toRow = Math.min(maxY / cellHeight, cells.length / columns - 1);
+			for (int row = fromRow; row <= toRow; row++) {
+				for (int column = fromColumn; column <= toColumn; column++) {
+					int cell = row * columns + column;
+					int[] slots = cells[cell];
+					int slotCount = cellCounts[cell];
+					for (int k = 0; k < slotCount; k++) {
+						classify(slots[k], minX, minY, maxX, maxY);
+					}
+				}
+			}
+			int oldCount = count;
+			for (int k = 0; k < overlappingCount; k++) {
+				int i = overlappings[k];
+				int fx = xs[i];
+				int fy = ys[i];
+				int fMaxX = fx + ws[i];
+				int fMaxY = fy + hs[i];
+				if (minX > fx) add(fx, fy, minX - fx, hs[i]);
+				if (maxX < fMaxX) add(maxX, fy, fMaxX - maxX, hs[i]);
+				if (minY > fy) add(fx, fy, ws[i], minY - fy);
+				if (maxY < fMaxY) add(fx, maxY, ws[i], fMaxY - maxY);
+			}
+			prune(oldCount);
+			// highest first, so that no overlapping rect is moved before it is deleted
+			Arrays.sort(overlappings, 0, overlappingCount);
+			for (int k = overlappingCount - 1; k >= 0; k--) {
+				delete(overlappings[k]);
+			}
+		}
+
+		private void classify(int i, int minX, int minY, int maxX, int maxY) {
+			int fx = xs[i];
+			int fy = ys[i];
+			int fMaxX = fx + ws[i];
+			int fMaxY = fy + hs[i];
+			if (fx > maxX || fMaxX < minX || fy > maxY || fMaxY < minY) return;
+			if (fx == maxX || fMaxX == minX || fy == maxY || fMaxY == minY) {
+				abuttings = append(abuttings, abuttingCount++, i);
+			} else {
+				overlappings = append(overlappings, overlappingCount++, i);
+			}
+		}
+
+		// only new rects can be redundant since none of the kept rects lies within a new rect;
+		// each new rect shares part of an edge with the placed rect, and so must any free rect containing it
+		private void prune(int from) {
+			int i = from;
+			while (i < count) {
+				if (isContained(i, from)) {
+					delete(i);
+				} else {
+					i++;
+				}
+			}
+		}
+
+		private boolean isContained(int i, int from) {
+			for (int k = 0; k < abuttingCount; k++) {
+				if (contains(abuttings[k], i)) return true;
+			}
+			for (int j = from; j < count; j++) {
+				if (j != i && contains(j, i)) return true;
+			}
+			return false;
+		}
+
+		private boolean contains(int j, int i) {
+			return xs[j] <= xs[i] && ys[j] <= ys[i] && xs[j] + ws[j] >= xs[i] + ws[i] && ys[j] + hs[j] >= ys[i] + hs[i];
+		}
+
+		private static int[] append(int[] array, int index, int value) {
+			if (index == array.length) array = Arrays.copyOf(array, index * 2);
+			array[index] = value;
+			return array;
+		}
+
+		private void add(int x, int y, int w, int h) {
+			if (count == xs.length) {
+				int capacity = count * 2;
+				xs = Arrays.copyOf(xs, capacity);
+				ys = Arrays.copyOf(ys, capacity);
+				ws = Arrays.copyOf(ws, capacity);
+				hs = Arrays.copyOf(hs, capacity);
+				buckets = Arrays.copyOf(buckets, capacity);
+				positions = Arrays.copyOf(positions, capacity);
+			}
+			int i = count++;
+			xs[i] = x;
+			ys[i] = y;
+			ws[i] = w;
+			hs[i] = h;
+			if (w > cellWidth || h > cellHeight) {
+				buckets[i] = LARGE;
+				positions[i] = largeCount;
+				larges = append(larges, largeCount++, i);
+			} else {
+				int cell = y / cellHeight * columns + x / cellWidth;
+				int[] slots = cells[cell];
+				if (slots == null) slots = cells[cell] = new int[4];
+				buckets[i] = cell;
+				positions[i] = cellCounts[cell];
+				cells[cell] = append(slots, cellCounts[cell]++, i);
+			}
+		}
+
+		// removes free rect i, filling its slot with the last
+		private void delete(int i) {
+			int bucket = buckets[i];
+			int position = positions[i];
+			if (bucket == LARGE) {
+				int last = larges[--largeCount];
+				larges[position] = last;
+				positions[last] = position;
+			} else {
+				int[] slots = cells[bucket];
+				int last = slots[--cellCounts[bucket]];
+				slots[position] = last;
+				positions[last] = position;
+			}
+			int last = --count;
+			if (i == last) return;
+			xs[i] = xs[last];
+			ys[i] = ys[last];
+			ws[i] = ws[last];
+			hs[i] = hs[last];
+			bucket = buckets[last];
+			position = positions[last];
+			buckets[i] = bucket;
+			positions[i] = position;
+			if (bucket == LARGE) {
+				larges[position] = i;
+			} else {
+				cells[bucket][position] = i;
+			}
+		}
+	}
+
+	private static final class SkylineBin extends Bin {
+
+		// segments of the skyline in order of x, abutting and spanning the bin
+		private int[] xs = new int[16];
+		private int[] ys = new int[16];
+		private int[] ws = new int[16];
+		private int count = 1;
+
+		SkylineBin(int width, int height) {
+			super(width, height);
+			ws[0] = width;
+		}
+
+		@Override
+		IntRect place(int w, int h) {
+			int best = -1;
+			int bestY = Integer.MAX_VALUE;
+			int bestTop = Integer.MAX_VALUE;
+			for (int i = 0; i < count; i++) {
+				int x = xs[i];
+				if (x + w > width) break;
+				// the rect rests on the highest segment beneath it
+				int y = 0;
+				for (int j = i, remaining = w; remaining > 0; remaining -= ws[j++]) {
+					y = Math.max(y, ys[j]);
+				}
+				int top = y + h;
+				if (top > height) continue;
+				if (top < bestTop || top == bestTop && y < bestY) {
+					best = i;
+					bestY = y;
+					bestTop = top;
+				}
+			}
+			if (best < 0) return null;
+			int x = xs[best];
+			raise(best, x, bestTop, w);
+			usedArea += (long) w * h;
+			return new IntRect(x, bestY, x + w, bestTop);
+		}
+
+		// replaces the skyline under [x, x + w) with a single segment at height y
+		private void raise(int i, int x, int y, int w) {
+			int maxX = x + w;
+			// find the first segment extending beyond the new one
+			int j = i;
+			while (j < count && xs[j] + ws[j] <= maxX) j++;
+			if (j < count && xs[j] < maxX) {
+				ws[j] = xs[j] + ws[j] - maxX;
+				xs[j] = maxX;
+			}
+			// segments i to j - 1 are replaced by one
+			int shift = 1 - (j - i);
+			if (shift != 0) {
+				if (count + shift > xs.length) {
+					int capacity = xs.length * 2;
+					xs = Arrays.copyOf(xs, capacity);
+					ys = Arrays.copyOf(ys, capacity);
+					ws = Arrays.copyOf(ws, capacity);
+				}
+				System.arraycopy(xs, j, xs, i + 1, count - j);
+				System.arraycopy(ys, j, ys, i + 1, count - j);
+				System.arraycopy(ws, j, ws, i + 1, count - j);
+				count += shift;
+			}
+			xs[i] = x;
+			ys[i] = y;
+			ws[i] = w;
+			merge(i);
+			maxFreeHeight = height - minY();
+		}
+
+		// merges segment i with neighbours at the same height
+		private void merge(int i) {
+			if (i + 1 < count && ys[i + 1] == ys[i]) remove(i + 1, i);
+			if (i > 0 && ys[i - 1] == ys[i]) remove(i, i - 1);
+		}
+
+		// absorbs segment i into the preceding segment p
+		private void remove(int i, int p) {
+			ws[p] += ws[i];
+			System.arraycopy(xs, i + 1, xs, i, count - i - 1);
+			System.arraycopy(ys, i + 1, ys, i, count - i - 1);
+			System.arraycopy(ws, i + 1, ws, i, count - i - 1);
+			count--;
+		}
+
+		private int minY() {
+			int min = ys[0];
+			for (int k = 1; k < count; k++) min = Math.min(min, ys[k]);
+			return min;
+		}
+	}
+
+}
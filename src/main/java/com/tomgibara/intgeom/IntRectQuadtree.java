@@ -0,0 +1,417 @@
+package com.tomgibara.intgeom;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+
+import com.tomgibara.intgeom.IntRectNavigator.TaggedRect;
+
+// a mutable loose quadtree over the full int plane; each rect is held by the smallest cell no smaller than it that contains its center
+// cells are loose: they accept any rect that lies within the cell grown by half its size on every side
+// not safe for concurrent modification
+public final class IntRectQuadtree<T> {
+
+	// statics
+
+	private static final long EXCLUDED = Long.MAX_VALUE;
+
+	private static long center(int min, int max) {
+		return ((long) min + max) >> 1;
+	}
+
+	// fields
+
+	private final Node<T> root = new Node<>(null, Integer.MIN_VALUE, Integer.MIN_VALUE, 32);
+	private final Map<TaggedRect<T>, Entry<T>> entries = new LinkedHashMap<>();
+	private long nextSeq = 0L;
+	private long modCount = 0L; // changes with every modification
+
+	// constructors
+
+	public IntRectQuadtree() {
+	}
+
+	public IntRectQuadtree(Collection<TaggedRect<T>> rects) {
+		if (rects == null) throw new IllegalArgumentException("null rects");
+		if (rects.contains(null)) throw new IllegalArgumentException("null rect");
+		for (TaggedRect<T> rect : rects) add(rect);
+	}
+
+	// accessors
+
+	public int size() {
+		return entries.size();
+	}
+
+	public boolean isEmpty() {
+		return entries.isEmpty();
+	}
+
+	public boolean contains(TaggedRect<T> rect) {
+		if (rect == null) throw new IllegalArgumentException("null rect");
+		return entries.containsKey(rect);
+	}
+
+	// a snapshot, in order of addition; a moved rect takes the place of the rect it replaced
+	public List<TaggedRect<T>> allTaggedRects() {
+		// moves reinsert into the map, so the order is restored from the sequence numbers
+		List<Entry<T>> list = new ArrayList<>(entries.values());
+		list.sort((a, b) -> Long.compare(a.seq, b.seq));
+		List<TaggedRect<T>> rects = new ArrayList<>(list.size());
+		for (Entry<T> entry : list) rects.add(entry.rect);
+		return Collections.unmodifiableList(rects);
+	}
+
+	// mutation, each proportional to the depth of the tree, at most 33 cells
+
+	// false if the rect was already present
+	public boolean add(TaggedRect<T> rect) {
+		if (rect == null) throw new IllegalArgumentException("null rect");
+		if (entries.containsKey(rect)) return false;
+		Entry<T> entry = new Entry<>(rect, nextSeq++);
+		entries.put(rect, entry);
+		insert(entry);
+		modCount++;
+		return true;
+	}
+
+	// false if the rect was not present
+	public boolean remove(TaggedRect<T> rect) {
+		if (rect == null) throw new IllegalArgumentException("null rect");
+		Entry<T> entry = entries.remove(rect);
+		if (entry == null) return false;
+		delete(entry);
+		modCount++;
+		return true;
+	}
+
+	// replaces a rect with one at a new position that carries the same tag; it retains its precedence for the navigator
+	public TaggedRect<T> move(TaggedRect<T> rect, IntRect to) {
+		if (rect == null) throw new IllegalArgumentException("null rect");
+		if (to == null) throw new IllegalArgumentException("null to");
+		Entry<T> entry = entries.remove(rect);
+		if (entry == null) throw new IllegalArgumentException("unknown rect");
+		TaggedRect<T> moved = new TaggedRect<>(to, rect.tag);
+		Node<T> node = entry.node;
+		entry.rect = moved;
+		entries.put(moved, entry);
+		modCount++;
+		if (cellFor(to, false) == node) {
+			// the rect remains in its cell
+			return moved;
+		}
+		delete(entry);
+		insert(entry);
+		return moved;
+	}
+
+	public void clear() {
+		entries.clear();
+		modCount++;
+		root.entries = null;
+		root.children = null;
+		root.total = 0;
+	}
+
+	// identifies the current contents, for invalidating anything derived from them
+	long modCount() {
+		return modCount;
+	}
+
+	// queries
+
+	// rects for which IntRect.intersectsRect(rect) holds
+	public void visitIntersecting(IntRect rect, Consumer<TaggedRect<T>> visitor) {
+		if (rect == null) throw new IllegalArgumentException("null rect");
+		if (visitor == null) throw new IllegalArgumentException("null visitor");
+		visitIntersecting(root, rect, visitor);
+	}
+
+	public List<TaggedRect<T>> intersecting(IntRect rect) {
+		List<TaggedRect<T>> list = new ArrayList<>();
+		visitIntersecting(rect, list::add);
+		return list;
+	}
+
+	// rects that share any point with the rect, including those that only meet its edges
+	void visitTouching(IntRect rect, Consumer<TaggedRect<T>> visitor) {
+		visitTouching(root, rect, visitor);
+	}
+
+	// rects for which IntRect.containsPoint(x, y) holds
+	public List<TaggedRect<T>> containingPoint(int x, int y) {
+		List<TaggedRect<T>> list = new ArrayList<>();
+		containing(root, x, y, false, list);
+		return list;
+	}
+
+	// rects for which IntRect.containsUnit(x, y) holds
+	public List<TaggedRect<T>> containingUnit(int x, int y) {
+		List<TaggedRect<T>> list = new ArrayList<>();
+		containing(root, x, y, true, list);
+		return list;
+	}
+
+	// as per IntRectTree, but with ties between equally placed rects favouring the most recently added
+	// cells are visited best first, since loose bounds are too weak for a depth first search to prune well
+	TaggedRect<T> findFrom(IntRect start, IntDir dir, boolean strict, IntRectTree.Tally tally) {
+		if (root.total == 0) return null;
+		Entry<T> best = null;
+		int leastDist = Integer.MAX_VALUE;
+		PriorityQueue<Bounded<T>> queue = new PriorityQueue<>();
+		queue.add(new Bounded<>(root, lowerBound(root, start, dir, strict)));
+		while (!queue.isEmpty()) {
+			Bounded<T> next = queue.poll();
+			if (next.bound > leastDist) break;
+			Node<T> node = next.node;
+			if (node.entries != null) {
+				for (Entry<T> entry : node.entries) {
+					int dist = IntRectTree.distance(start, entry.rect.rect, dir, strict);
+					if (tally != null) tally.count(dist);
+					if (dist < 0) continue;
+					if (dist < leastDist || dist == leastDist && best != null && precedes(entry, best, dir)) {
+						best = entry;
+						leastDist = dist;
+					}
+				}
+			}
+			if (node.children != null) {
+				for (Node<T> child : node.children) {
+					if (child == null) continue;
+					long bound = lowerBound(child, start, dir, strict);
+					if (bound <= leastDist) queue.add(new Bounded<>(child, bound));
+				}
+			}
+		}
+		return best == null ? null : best.rect;
+	}
+
+	private boolean precedes(Entry<T> a, Entry<T> b, IntDir dir) {
+		long la = IntRectTree.lead(a.rect.rect, dir);
+		long lb = IntRectTree.lead(b.rect.rect, dir);
+		return la == lb ? a.seq > b.seq : la > lb;
+	}
+
+	// the least distance of any candidate within the loose bounds of the node, or EXCLUDED if there can be none
+	private long lowerBound(Node<T> node, IntRect start, IntDir dir, boolean strict) {
+		long half = node.size() >> 1;
+		long minX = node.x - half;
+		long minY = node.y - half;
+		long maxX = node.x + node.size() + half;
+		long maxY = node.y + node.size() + half;
+		long gap;
+		switch (dir) {
+		case LESS_X:
+			if (minX > start.minX) return EXCLUDED;
+			gap = start.minX - maxX;
+			break;
+		case MORE_X:
+			if (maxX < start.maxX) return EXCLUDED;
+			gap = minX - start.maxX;
+			break;
+		case LESS_Y:
+			if (minY > start.minY) return EXCLUDED;
+			gap = start.minY - maxY;
+			break;
+		case MORE_Y:
+			if (maxY < start.maxY) return EXCLUDED;
+			gap = minY - start.maxY;
+			break;
+		default: throw new IllegalStateException();
+		}
+		long center;
+		long minCenter;
+		long maxCenter;
+		if (dir.axis.horizontal) {
+			if (strict && (minY >= start.maxY || maxY <= start.minY)) return EXCLUDED;
+			center = start.centerY();
+			minCenter = minY;
+			maxCenter = maxY;
+		} else {
+			if (strict && (minX >= start.maxX || maxX <= start.minX)) return EXCLUDED;
+			center = start.centerX();
+			minCenter = minX;
+			maxCenter = maxX;
+		}
+		long offCenter = center < minCenter ? minCenter - center : center > maxCenter ? center - maxCenter : 0L;
+		return Math.max(gap, 0L) + offCenter;
+	}
+
+	// tree maintenance
+
+	// the cell for the rect, created if necessary
+	private Node<T> cellFor(IntRect rect, boolean create) {
+		long extent = Math.max((long) rect.maxX - rect.minX, (long) rect.maxY - rect.minY);
+		long cx = center(rect.minX, rect.maxX);
+		long cy = center(rect.minY, rect.maxY);
+		Node<T> node = root;
+		while (node.shift > 0) {
+			long half = node.size() >> 1;
+			if (extent > half) break;
+			int quadrant = (cx >= node.x + half ? 1 : 0) | (cy >= node.y + half ? 2 : 0);
+			Node<T> child = node.children == null ? null : node.children[quadrant];
+			if (child == null) {
+				if (!create) return null;
+				child = node.child(quadrant);
+			}
+			node = child;
+		}
+		return node;
+	}
+
+	private void insert(Entry<T> entry) {
+		Node<T> node = cellFor(entry.rect.rect, true);
+		if (node.entries == null) node.entries = new ArrayList<>(4);
+		entry.node = node;
+		entry.slot = node.entries.size();
+		node.entries.add(entry);
+		for (Node<T> n = node; n != null; n = n.parent) n.total++;
+	}
+
+	private void delete(Entry<T> entry) {
+		Node<T> node = entry.node;
+		List<Entry<T>> list = node.entries;
+		Entry<T> last = list.remove(list.size() - 1);
+		if (last != entry) {
+			list.set(entry.slot, last);
+			last.slot = entry.slot;
+		}
+		if (list.isEmpty()) node.entries = null;
+		entry.node = null;
+		for (Node<T> n = node; n != null; n = n.parent) n.total--;
+		// discard cells that no longer hold any rects
+		while (node.parent != null && node.total == 0) {
+			node.parent.detach(node);
+			node = node.parent;
+		}
+	}
+
+	private void visitIntersecting(Node<T> node, IntRect rect, Consumer<TaggedRect<T>> visitor) {
+		if (node.total == 0 || !node.looselyIntersects(rect.minX, rect.minY, rect.maxX, rect.maxY)) return;
+		if (node.entries != null) {
+			for (Entry<T> entry : node.entries) {
+				if (entry.rect.rect.intersectsRect(rect)) visitor.accept(entry.rect);
+			}
+		}
+		if (node.children != null) {
+			for (Node<T> child : node.children) {
+				if (child != null) visitIntersecting(child, rect, visitor);
+			}
+		}
+	}
+
+	private void visitTouching(Node<T> node, IntRect rect, Consumer<TaggedRect<T>> visitor) {
+		if (node.total == 0 || !node.looselyIntersects(rect.minX, rect.minY, rect.maxX, rect.maxY)) return;
+		if (node.entries != null) {
+			for (Entry<T> entry : node.entries) {
+				IntRect r = entry.rect.rect;
+				if (r.minX <= rect.maxX && r.maxX >= rect.minX && r.minY <= rect.maxY && r.maxY >= rect.minY) visitor.accept(entry.rect);
+			}
+		}
+		if (node.children != null) {
+			for (Node<T> child : node.children) {
+				if (child != null) visitTouching(child, rect, visitor);
+			}
+		}
+	}
+
+	private void containing(Node<T> node, int x, int y, boolean unit, List<TaggedRect<T>> list) {
+		if (node.total == 0 || !node.looselyIntersects(x, y, x, y)) return;
+		if (node.entries != null) {
+			for (Entry<T> entry : node.entries) {
+				IntRect r = entry.rect.rect;
+				if (unit ? r.containsUnit(x, y) : r.containsPoint(x, y)) list.add(entry.rect);
+			}
+		}
+		if (node.children != null) {
+			for (Node<T> child : node.children) {
+				if (child != null) containing(child, x, y, unit, list);
+			}
+		}
+	}
+
+	// inner classes
+
+	private static final class Entry<T> {
+
+		TaggedRect<T> rect;
+		final long seq; // order of addition
+		Node<T> node;
+		int slot; // index in the entries of the node
+
+		Entry(TaggedRect<T> rect, long seq) {
+			this.rect = rect;
+			this.seq = seq;
+		}
+	}
+
+	private static final class Bounded<T> implements Comparable<Bounded<T>> {
+
+		final Node<T> node;
+		final long bound;
+
+		Bounded(Node<T> node, long bound) {
+			this.node = node;
+			this.bound = bound;
+		}
+
+		@Override
+		public int compareTo(Bounded<T> that) {
+			return Long.compare(this.bound, that.bound);
+		}
+	}
+
+	private static final class Node<T> {
+
+		final Node<T> parent;
+		final long x; // cell origin
+		final long y;
+		final int shift; // cell size is 1 << shift
+		List<Entry<T>> entries; // null when empty
+		Node<T>[] children; // null when leaf
+		int total; // the number of rects in this subtree
+
+		Node(Node<T> parent, long x, long y, int shift) {
+			this.parent = parent;
+			this.x = x;
+			this.y = y;
+			this.shift = shift;
+		}
+
+		long size() {
+			return 1L << shift;
+		}
+
+		@SuppressWarnings("unchecked")
+		Node<T> child(int quadrant) {
+			if (children == null) children = (Node<T>[]) new Node<?>[4];
+			long half = size() >> 1;
+			Node<T> child = new Node<>(this, x + ((quadrant & 1) == 0 ? 0L : half), y + ((quadrant & 2) == 0 ? 0L : half), shift - 1);
+			children[quadrant] = child;
+			return child;
+		}
+
+		void detach(Node<T> child) {
+			boolean leaf = true;
+			for (int i = 0; i < 4; i++) {
+				if (children[i] == child) children[i] = null;
+				else if (children[i] != null) leaf = false;
+			}
+			if (leaf) children = null;
+		}
+
+		// closed test against the loose bounds, which contain every rect held in the subtree
+		boolean looselyIntersects(int minX, int minY, int maxX, int maxY) {
+			long half = size() >> 1;
+			return
+					maxX >= x - half && minX <= x + size() + half &&
+					maxY >= y - half && minY <= y + size() + half;
+		}
+	}
+
+}
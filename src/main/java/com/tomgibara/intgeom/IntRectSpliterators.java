@@ -0,0 +1,399 @@
+package com.tomgibara.intgeom;
+
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.function.LongConsumer;
+
+// spliterators over the coordinates of a rect, supplying IntPair values
+final class IntRectSpliterators {
+
+	private static final int CHARACTERISTICS =
+			Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.NONNULL | Spliterator.IMMUTABLE;
+
+	// coordinates in lines of equal length; rows of x when row ordered, otherwise columns of y
+	static final class Lines implements Spliterator.OfLong {
+
+		private final int minX;
+		private final int minY;
+		private final long lineLength;
+		private final boolean rowOrder;
+
+		private long index;
+		private final long fence;
+		private long line; // the line containing index
+		private long offset; // the offset of index within its line
+
+		Lines(int minX, int minY, long lineLength, long lineCount, boolean rowOrder) {
+			this(minX, minY, lineLength, rowOrder, 0L, lineLength * lineCount);
+		}
+
+		private Lines(int minX, int minY, long lineLength, boolean rowOrder, long index, long fence) {
+			this.minX = minX;
+			this.minY = minY;
+			this.lineLength = lineLength;
+			this.rowOrder = rowOrder;
+			this.index = index;
+			this.fence = fence;
+			if (lineLength > 0L) {
+				line = index / lineLength;
+				offset = index - line * lineLength;
+			}
+		}
+
+		@Override
+		public boolean tryAdvance(LongConsumer action) {
+			if (action == null) throw new NullPointerException();
+			if (index >= fence) return false;
+			action.accept(pair(line, offset));
+			index++;
+			if (++offset == lineLength) {
+				line++;
+				offset = 0L;
+			}
+			return true;
+		}
+
+		@Override
+		public void forEachRemaining(LongConsumer action) {
+			if (action == null) throw new NullPointerException();
+			long remaining = fence - index;
+			long line = this.line;
+			long offset = this.offset;
+			index = fence;
+			while (remaining > 0L) {
+				long count = Math.min(lineLength - offset, remaining);
+				int base = (int) line;
+				int start = (int) offset;
+				if (rowOrder) {
+					int y = minY + base;
+					int x = minX + start;
+					for (long i = 0; i < count; i++) action.accept(IntPair.fromInts(x++, y));
+				} else {
+					int x = minX + base;
+					int y = minY + start;
+					for (long i = 0; i < count; i++) action.accept(IntPair.fromInts(x, y++));
+				}
+				remaining -= count;
+				line++;
+				offset = 0L;
+			}
+		}
+
+		// splits on line boundaries where possible
+		@Override
+		public Spliterator.OfLong trySplit() {
+			long remaining = fence - index;
+			if (remaining < 2L) return null;
+			long lastLine = (fence - 1) / lineLength;
+			long mid = lastLine > line ?
+					((line + lastLine + 1) >>> 1) * lineLength :
+					index + (remaining >>> 1);
+			Lines prefix = new Lines(minX, minY, lineLength, rowOrder, index, mid);
+			index = mid;
+			line = mid / lineLength;
+			offset = mid - line * lineLength;
+			return prefix;
+		}
+
+		@Override
+		public long estimateSize() {
+			return fence - index;
+		}
+
+		@Override
+		public int characteristics() {
+			return CHARACTERISTICS;
+		}
+
+		private long pair(long line, long offset) {
+			return rowOrder ?
+					IntPair.fromInts(minX + (int) offset, minY + (int) line) :
+					IntPair.fromInts(minX + (int) line, minY + (int) offset);
+		}
+	}
+
+	// units of a rect in tiles, with tiles and the units within them in row order
+	static final class Tiles implements Spliterator.OfLong {
+
+		private final IntRect rect;
+		private final int tileWidth;
+		private final int tileHeight;
+		private final int tilesAcross;
+
+		private long tile;
+		private final long tileFence;
+		private long offset; // units consumed from the current tile
+
+		// the rect must not be degenerate
+		Tiles(IntRect rect, int tileWidth, int tileHeight) {
+			this(rect, tileWidth, tileHeight, 0L, tiles(rect.width(), tileWidth) * tiles(rect.height(), tileHeight));
+		}
+
+		private static long tiles(int size, int tileSize) {
+			return (size + (long) tileSize - 1) / tileSize;
+		}
+
+		private Tiles(IntRect rect, int tileWidth, int tileHeight, long tile, long tileFence) {
+			this.rect = rect;
+			this.tileWidth = tileWidth;
+			this.tileHeight = tileHeight;
+			this.tilesAcross = (int) tiles(rect.width(), tileWidth);
+			this.tile = tile;
+			this.tileFence = tileFence;
+		}
+
+		@Override
+		public boolean tryAdvance(LongConsumer action) {
+			if (action == null) throw new NullPointerException();
+			if (tile >= tileFence) return false;
+			int tx = (int) (tile % tilesAcross);
+			int ty = (int) (tile / tilesAcross);
+			int x = tx * tileWidth;
+			int y = ty * tileHeight;
+			int w = Math.min(tileWidth, rect.width() - x);
+			int h = Math.min(tileHeight, rect.height() - y);
+			int row = (int) (offset / w);
+			int col = (int) (offset - (long) row * w);
+			action.accept(IntPair.fromInts(rect.minX + x + col, rect.minY + y + row));
+			if (++offset == (long) w * h) {
+				tile++;
+				offset = 0L;
+			}
+			return true;
+		}
+
+		@Override
+		public void forEachRemaining(LongConsumer action) {
+			if (action == null) throw new NullPointerException();
+			int width = rect.width();
+			int height = rect.height();
+			for (; tile < tileFence; tile++, offset = 0L) {
+				int tx = (int) (tile % tilesAcross);
+				int ty = (int) (tile / tilesAcross);
+				int x = tx * tileWidth;
+				int y = ty * tileHeight;
+				int w = Math.min(tileWidth, width - x);
+				int h = Math.min(tileHeight, height - y);
+				int row = (int) (offset / w);
+				int col = (int) (offset - (long) row * w);
+				int minX = rect.minX + x;
+				for (int r = row; r < h; r++, col = 0) {
+					int py = rect.minY + y + r;
+					for (int c = col; c < w; c++) {
+						action.accept(IntPair.fromInts(minX + c, py));
+					}
+				}
+			}
+		}
+
+		// splits on tile row boundaries where possible, otherwise between tiles
+		@Override
+		public Spliterator.OfLong trySplit() {
+			long first = offset == 0L ? tile : tile + 1;
+			if (tileFence - first < 2L) return null;
+			long firstRow = first / tilesAcross;
+			long lastRow = (tileFence - 1) / tilesAcross;
+			long mid = lastRow > firstRow ?
+					((firstRow + lastRow + 1) >>> 1) * tilesAcross :
+					first + ((tileFence - first) >>> 1);
+			Tiles prefix = new Tiles(rect, tileWidth, tileHeight, tile, mid);
+			prefix.offset = offset;
+			tile = mid;
+			offset = 0L;
+			return prefix;
+		}
+
+		@Override
+		public long estimateSize() {
+			return unitsBefore(tileFence) - unitsBefore(tile) - offset;
+		}
+
+		@Override
+		public int characteristics() {
+			return CHARACTERISTICS;
+		}
+
+		private long unitsBefore(long tile) {
+			long width = rect.width();
+			long height = rect.height();
+			long ty = tile / tilesAcross;
+			long tx = tile - ty * tilesAcross;
+			long above = Math.min(ty * tileHeight, height);
+			long rowHeight = Math.min(tileHeight, height - above);
+			long left = Math.min(tx * tileWidth, width);
+			return above * width + rowHeight * left;
+		}
+	}
+
+	// units of a rect in the order of a space filling curve over the smallest enclosing square of power of two side
+	// the curve is descended by aligned quadrants, so quadrants beyond the rect are skipped wholesale
+	static final class Curve implements Spliterator.OfLong {
+
+		private final int minX;
+		private final int minY;
+		private final long width;
+		private final long height;
+		private final int bits;
+		private final boolean hilbert;
+
+		// pending quadrants, each a range of 1 << 2 * level indices from start, the last is visited first
+		private long[] starts;
+		private int[] levels;
+		private int count;
+		// indices of a quadrant that lies wholly within the rect
+		private long runNext;
+		private long runEnd;
+		private long remaining;
+
+		// the rect must not be degenerate
+		Curve(IntRect rect, boolean hilbert) {
+			this.minX = rect.minX;
+			this.minY = rect.minY;
+			this.width = (long) rect.maxX - rect.minX;
+			this.height = (long) rect.maxY - rect.minY;
+			this.bits = IntCurves.bitsFor(Math.max(width, height));
+			this.hilbert = hilbert;
+			starts = new long[4 * bits + 1];
+			levels = new int[starts.length];
+			push(0L, bits);
+			remaining = width * height;
+		}
+
+		private Curve(Curve that, long[] starts, int[] levels, int count, long runNext, long runEnd, long remaining) {
+			this.minX = that.minX;
+			this.minY = that.minY;
+			this.width = that.width;
+			this.height = that.height;
+			this.bits = that.bits;
+			this.hilbert = that.hilbert;
+			this.starts = starts;
+			this.levels = levels;
+			this.count = count;
+			this.runNext = runNext;
+			this.runEnd = runEnd;
+			this.remaining = remaining;
+		}
+
+		@Override
+		public boolean tryAdvance(LongConsumer action) {
+			if (action == null) throw new NullPointerException();
+			while (runNext == runEnd) {
+				if (count == 0) return false;
+				expand();
+			}
+			action.accept(unit(runNext++));
+			remaining--;
+			return true;
+		}
+
+		@Override
+		public void forEachRemaining(LongConsumer action) {
+			if (action == null) throw new NullPointerException();
+			while (true) {
+				while (runNext < runEnd) action.accept(unit(runNext++));
+				if (count == 0) break;
+				expand();
+			}
+			remaining = 0L;
+		}
+
+		// splits the current run, otherwise the earlier half of the pending quadrants
+		@Override
+		public Spliterator.OfLong trySplit() {
+			long run = runEnd - runNext;
+			if (run == 0L && count == 1) {
+				expand();
+				run = runEnd - runNext;
+			}
+			if (run > 1L) {
+				long size = run >>> 1;
+				Curve prefix = new Curve(this, new long[0], new int[0], 0, runNext, runNext + size, size);
+				runNext += size;
+				remaining -= size;
+				return prefix;
+			}
+			if (run == 1L || count < 2) return null;
+			int half = count >>> 1;
+			int from = count - half;
+			long[] ss = new long[starts.length];
+			int[] ls = new int[levels.length];
+			System.arraycopy(starts, from, ss, 0, half);
+			System.arraycopy(levels, from, ls, 0, half);
+			long size = 0L;
+			for (int i = 0; i < half; i++) size += area(ss[i], ls[i]);
+			count = from;
+			remaining -= size;
+			return new Curve(this, ss, ls, half, 0L, 0L, size);
+		}
+
+		@Override
+		public long estimateSize() {
+			return remaining;
+		}
+
+		@Override
+		public int characteristics() {
+			return CHARACTERISTICS;
+		}
+
+		// replaces the next quadrant with a run or its overlapping sub-quadrants, leaving the remaining units unchanged
+		private void expand() {
+			count--;
+			long start = starts[count];
+			int level = levels[count];
+			long side = 1L << level;
+			long origin = origin(start, level);
+			long x = IntPair.xOf(origin);
+			long y = IntPair.yOf(origin);
+			if (x + side <= width && y + side <= height) {
+				runNext = start;
+				runEnd = start + side * side;
+			} else {
+				long quarter = 1L << 2 * (level - 1);
+				for (int q = 3; q >= 0; q--) push(start + q * quarter, level - 1);
+			}
+		}
+
+		private void push(long start, int level) {
+			long area = area(start, level);
+			if (area == 0L) return;
+			if (count == starts.length) {
+				starts = Arrays.copyOf(starts, count * 2);
+				levels = Arrays.copyOf(levels, count * 2);
+			}
+			starts[count] = start;
+			levels[count] = level;
+			count++;
+		}
+
+		// the number of units of the rect within the quadrant
+		private long area(long start, int level) {
+			long side = 1L << level;
+			long origin = origin(start, level);
+			long x = IntPair.xOf(origin);
+			long y = IntPair.yOf(origin);
+			if (x >= width || y >= height) return 0L;
+			return Math.min(side, width - x) * Math.min(side, height - y);
+		}
+
+		// the least coordinates of the quadrant, relative to the rect
+		private long origin(long start, int level) {
+			long pair = local(start);
+			int mask = -1 << level;
+			return IntPair.fromInts(IntPair.xOf(pair) & mask, IntPair.yOf(pair) & mask);
+		}
+
+		private long local(long index) {
+			return hilbert ?
+					IntCurves.hilbertDecode(bits, index) :
+					IntPair.fromInts(IntCurves.mortonDecodeX(index), IntCurves.mortonDecodeY(index));
+		}
+
+		private long unit(long index) {
+			long pair = local(index);
+			return IntPair.fromInts(minX + IntPair.xOf(pair), minY + IntPair.yOf(pair));
+		}
+	}
+
+	private IntRectSpliterators() {}
+}
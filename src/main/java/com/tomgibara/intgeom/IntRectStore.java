@@ -0,0 +1,250 @@
+package com.tomgibara.intgeom;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+import java.util.stream.IntStream;
+
+// rects with int tags in a binary file that is queried in place, typically through a read-only memory mapping
+// the file is little endian: a header of eight ints, then four ints per rect (minX, minY, maxX, maxY), then one int tag per rect if tagged
+// the header holds a magic number, the format version, the rect count, flags and the bounds of all the rects (zeros if there are none)
+public final class IntRectStore {
+
+	// statics
+
+	private static final int MAGIC = 0x53524749; // "IGRS" when read as bytes
+	private static final int VERSION = 1;
+	private static final int FLAG_TAGGED = 1;
+	private static final int HEADER_INTS = 8;
+	private static final int RECT_INTS = 4;
+
+	// bytes buffered while writing
+	private static final int WRITE_BUFFER = 1 << 16;
+
+	// tags may be null, otherwise there must be one for each rect
+	public static void write(Path path, IntRectArray rects, int[] tags) throws IOException {
+		if (path == null) throw new IllegalArgumentException("null path");
+		if (rects == null) throw new IllegalArgumentException("null rects");
+		int count = rects.size();
+		if (tags != null && tags.length != count) throw new IllegalArgumentException("tags do not match rects");
+		if (bytes(count, tags != null) > Integer.MAX_VALUE) throw new IllegalArgumentException("too many rects");
+		IntRect bounds = rects.bounds().orElse(IntRect.ZERO_RECT);
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER).order(ByteOrder.LITTLE_ENDIAN);
+			buffer.putInt(MAGIC).putInt(VERSION).putInt(count).putInt(tags == null ? 0 : FLAG_TAGGED);
+			buffer.putInt(bounds.minX).putInt(bounds.minY).putInt(bounds.maxX).putInt(bounds.maxY);
+			for (int i = 0; i < count; i++) {
+				if (buffer.remaining() < RECT_INTS * 4) drain(channel, buffer);
+				buffer.putInt(rects.minX(i)).putInt(rects.minY(i)).putInt(rects.maxX(i)).putInt(rects.maxY(i));
+			}
+			if (tags != null) {
+				for (int tag : tags) {
+					if (buffer.remaining() < 4) drain(channel, buffer);
+					buffer.putInt(tag);
+				}
+			}
+			drain(channel, buffer);
+		}
+	}
+
+	// maps the file read-only, the mapping is shared with other processes mapping the same file
+	public static IntRectStore map(Path path) throws IOException {
+		if (path == null) throw new IllegalArgumentException("null path");
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size > Integer.MAX_VALUE) throw new IOException("store too large");
+			return new IntRectStore(channel.map(FileChannel.MapMode.READ_ONLY, 0L, size));
+		}
+	}
+
+	// reads a store from the remaining bytes of a buffer, which are not copied
+	public static IntRectStore from(ByteBuffer buffer) throws IOException {
+		if (buffer == null) throw new IllegalArgumentException("null buffer");
+		return new IntRectStore(buffer.slice());
+	}
+
+	private static long bytes(long count, boolean tagged) {
+		return 4L * (HEADER_INTS + count * (tagged ? RECT_INTS + 1 : RECT_INTS));
+	}
+
+	private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) channel.write(buffer);
+		buffer.clear();
+	}
+
+	// fields
+
+	private final IntBuffer ints; // the whole store
+	private final int size;
+	private final boolean tagged;
+	private final int tagOffset;
+	private final IntRect bounds; // null if empty
+
+	// constructors
+
+	private IntRectStore(ByteBuffer buffer) throws IOException {
+		ints = buffer.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+		if (ints.limit() < HEADER_INTS) throw new IOException("truncated header");
+		if (ints.get(0) != MAGIC) throw new IOException("not a rect store");
+		if (ints.get(1) != VERSION) throw new IOException("unsupported version " + ints.get(1));
+		size = ints.get(2);
+		tagged = (ints.get(3) & FLAG_TAGGED) != 0;
+		if (size < 0 || buffer.remaining() < bytes(size, tagged)) throw new IOException("truncated rects");
+		tagOffset = HEADER_INTS + size * RECT_INTS;
+		bounds = size == 0 ? null : new IntRect(ints.get(4), ints.get(5), ints.get(6), ints.get(7));
+	}
+
+	// accessors
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public boolean isTagged() {
+		return tagged;
+	}
+
+	public Optional<IntRect> bounds() {
+		return Optional.ofNullable(bounds);
+	}
+
+	public int minX(int index) { return ints.get(offset(index)    ); }
+	public int minY(int index) { return ints.get(offset(index) + 1); }
+	public int maxX(int index) { return ints.get(offset(index) + 2); }
+	public int maxY(int index) { return ints.get(offset(index) + 3); }
+
+	public IntRect get(int index) {
+		int offset = offset(index);
+		return new IntRect(ints.get(offset), ints.get(offset + 1), ints.get(offset + 2), ints.get(offset + 3));
+	}
+
+	// zero for every rect of an untagged store
+	public int tag(int index) {
+		checkIndex(index);
+		return tagged ? ints.get(tagOffset + index) : 0;
+	}
+
+	// predicates, as per IntRect
+
+	public boolean containsPoint(int index, int x, int y) {
+		return containsPoint(offset(index), x, y, false);
+	}
+
+	public boolean containsUnit(int index, int x, int y) {
+		return containsPoint(offset(index), x, y, true);
+	}
+
+	public boolean containsRect(int index, IntRect that) {
+		if (that == null) throw new IllegalArgumentException("null that");
+		int offset = offset(index);
+		return
+			ints.get(offset    ) <= that.minX &&
+			ints.get(offset + 2) >= that.maxX &&
+			ints.get(offset + 1) <= that.minY &&
+			ints.get(offset + 3) >= that.maxY;
+	}
+
+	public boolean intersectsRect(int index, IntRect that) {
+		if (that == null) throw new IllegalArgumentException("null that");
+		return intersects(offset(index), that);
+	}
+
+	// bulk operations, which scan the store in place
+
+	public int countContainingPoint(int x, int y) {
+		if (bounds == null || !bounds.containsPoint(x, y)) return 0;
+		int count = 0;
+		for (int offset = HEADER_INTS; offset < tagOffset; offset += RECT_INTS) {
+			if (containsPoint(offset, x, y, false)) count++;
+		}
+		return count;
+	}
+
+	public int countIntersecting(IntRect rect) {
+		if (rect == null) throw new IllegalArgumentException("null rect");
+		if (bounds == null || !bounds.intersectsRect(rect)) return 0;
+		int count = 0;
+		for (int offset = HEADER_INTS; offset < tagOffset; offset += RECT_INTS) {
+			if (intersects(offset, rect)) count++;
+		}
+		return count;
+	}
+
+	public IntStream indicesContainingPoint(int x, int y) {
+		if (bounds == null || !bounds.containsPoint(x, y)) return IntStream.empty();
+		return IntStream.range(0, size).filter(i -> containsPoint(HEADER_INTS + i * RECT_INTS, x, y, false));
+	}
+
+	public IntStream indicesIntersecting(IntRect rect) {
+		if (rect == null) throw new IllegalArgumentException("null rect");
+		if (bounds == null || !bounds.intersectsRect(rect)) return IntStream.empty();
+		return IntStream.range(0, size).filter(i -> intersects(HEADER_INTS + i * RECT_INTS, rect));
+	}
+
+	public IntStream indicesContainedBy(IntRect rect) {
+		if (rect == null) throw new IllegalArgumentException("null rect");
+		if (bounds == null) return IntStream.empty();
+		return IntStream.range(0, size).filter(i -> {
+			int offset = HEADER_INTS + i * RECT_INTS;
+			return
+				rect.minX <= ints.get(offset    ) &&
+				rect.maxX >= ints.get(offset + 2) &&
+				rect.minY <= ints.get(offset + 1) &&
+				rect.maxY >= ints.get(offset + 3);
+		});
+	}
+
+	// copies the rects onto the heap
+	public IntRectArray toIntRectArray() {
+		IntRectArray array = new IntRectArray(size);
+		for (int offset = HEADER_INTS; offset < tagOffset; offset += RECT_INTS) {
+			array.add(ints.get(offset), ints.get(offset + 1), ints.get(offset + 2), ints.get(offset + 3));
+		}
+		return array;
+	}
+
+	private boolean containsPoint(int offset, int x, int y, boolean unit) {
+		int minX = ints.get(offset);
+		int minY = ints.get(offset + 1);
+		int maxX = ints.get(offset + 2);
+		int maxY = ints.get(offset + 3);
+		return unit ?
+				x >= minX && x < maxX && y >= minY && y < maxY :
+				x >= minX && x <= maxX && y >= minY && y <= maxY;
+	}
+
+	private boolean intersects(int offset, IntRect rect) {
+		return
+			ints.get(offset    ) < rect.maxX &&
+			ints.get(offset + 2) > rect.minX &&
+			ints.get(offset + 1) < rect.maxY &&
+			ints.get(offset + 3) > rect.minY;
+	}
+
+	private int offset(int index) {
+		checkIndex(index);
+		return HEADER_INTS + index * RECT_INTS;
+	}
+
+	private void checkIndex(int index) {
+		if (index < 0 || index >= size) throw new IllegalArgumentException("invalid index");
+	}
+
+	// object methods
+
+	@Override
+	public String toString() {
+		return "IntRectStore(" + size + (tagged ? " tagged" : "") + " rects)";
+	}
+
+}
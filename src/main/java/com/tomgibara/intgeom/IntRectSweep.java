@@ -0,0 +1,197 @@
+package com.tomgibara.intgeom;
+
+import java.util.Arrays;
+import java.util.List;
+
+// finds intersecting pairs of rects, as per IntRect.intersectsRect, by sweeping across x
+// rects whose x ranges span the sweep position are held in buckets over y, which are cleared lazily as the sweep passes
+public final class IntRectSweep {
+
+	// statics
+
+	public interface PairConsumer {
+
+		// indices are positions in the rect arrays searched
+		void accept(int i, int j);
+
+	}
+
+	// bounds the memory used for buckets
+	private static final int MAX_BUCKETS = 1 << 16;
+
+	// each pair is reported once, with i less than j
+	public static void forEachIntersectingPair(IntRectArray rects, PairConsumer consumer) {
+		if (rects == null) throw new IllegalArgumentException("null rects");
+		if (consumer == null) throw new IllegalArgumentException("null consumer");
+		Sorted sorted = new Sorted(rects);
+		Buckets buckets = new Buckets(sorted, sorted);
+		PairConsumer ordered = (i, j) -> consumer.accept(Math.min(i, j), Math.max(i, j));
+		for (int k = 0; k < sorted.size; k++) {
+			buckets.visit(sorted, k, ordered);
+			buckets.add(k);
+		}
+	}
+
+	public static void forEachIntersectingPair(List<IntRect> rects, PairConsumer consumer) {
+		if (rects == null) throw new IllegalArgumentException("null rects");
+		if (rects.contains(null)) throw new IllegalArgumentException("null rect");
+		forEachIntersectingPair(new IntRectArray(rects), consumer);
+	}
+
+	// a spatial join, each pair is reported once with i indexing a and j indexing b
+	public static void forEachIntersectingPair(IntRectArray a, IntRectArray b, PairConsumer consumer) {
+		if (a == null) throw new IllegalArgumentException("null a");
+		if (b == null) throw new IllegalArgumentException("null b");
+		if (consumer == null) throw new IllegalArgumentException("null consumer");
+		Sorted sa = new Sorted(a);
+		Sorted sb = new Sorted(b);
+		Buckets ba = new Buckets(sa, sb);
+		Buckets bb = new Buckets(sb, sa);
+		PairConsumer swapped = (j, i) -> consumer.accept(i, j);
+		for (int ka = 0, kb = 0; ka < sa.size || kb < sb.size; ) {
+			if (kb == sb.size || ka < sa.size && sa.minXs[ka] <= sb.minXs[kb]) {
+				bb.visit(sa, ka, swapped);
+				ba.add(ka++);
+			} else {
+				ba.visit(sb, kb, consumer);
+				bb.add(kb++);
+			}
+		}
+	}
+
+	public static long countIntersectingPairs(IntRectArray rects) {
+		long[] count = { 0L };
+		forEachIntersectingPair(rects, (i, j) -> count[0]++);
+		return count[0];
+	}
+
+	// inner classes
+
+	// rects in order of minX, with their original indices
+	private static final class Sorted {
+
+		final int size;
+		final int[] minXs;
+		final int[] minYs;
+		final int[] maxXs;
+		final int[] maxYs;
+		final int[] indices;
+
+		Sorted(IntRectArray rects) {
+			size = rects.size();
+			long[] keys = new long[size];
+			for (int i = 0; i < size; i++) {
+				keys[i] = (long) rects.minX(i) << 32 | i;
+			}
+			Arrays.sort(keys);
+			minXs = new int[size];
+			minYs = new int[size];
+			maxXs = new int[size];
+			maxYs = new int[size];
+			indices = new int[size];
+			for (int k = 0; k < size; k++) {
+				int i = (int) keys[k];
+				minXs[k] = rects.minX(i);
+				minYs[k] = rects.minY(i);
+				maxXs[k] = rects.maxX(i);
+				maxYs[k] = rects.maxY(i);
+				indices[k] = i;
+			}
+		}
+	}
+
+	// active rects from one sorted set, in every bucket over which they extend
+	private static final class Buckets {
+
+		private final Sorted rects;
+		private final long origin;
+		private final long bucketHeight;
+		private final int count;
+		private final int[][] entries;
+		private final int[] sizes;
+
+		// buckets are sized from the average height of the rects in both sets
+		Buckets(Sorted rects, Sorted other) {
+			this.rects = rects;
+			long minY = Long.MAX_VALUE;
+			long maxY = Long.MIN_VALUE;
+			long heights = 0L;
+			int total = rects.size + other.size;
+			for (Sorted s : new Sorted[] { rects, other }) {
+				for (int k = 0; k < s.size; k++) {
+					minY = Math.min(minY, s.minYs[k]);
+					maxY = Math.max(maxY, s.maxYs[k]);
+					heights += (long) s.maxYs[k] - s.minYs[k];
+				}
+			}
+			if (total == 0) {
+				origin = 0L;
+				bucketHeight = 1L;
+				count = 1;
+			} else {
+				long span = maxY - minY + 1;
+				long height = Math.max(1L, 2 * heights / total);
+				long limit = Math.min(MAX_BUCKETS, Math.max(1, total));
+				if ((span + height - 1) / height > limit) height = (span + limit - 1) / limit;
+				origin = minY;
+				bucketHeight = height;
+				count = (int) ((span + height - 1) / height);
+			}
+			entries = new int[count][];
+			sizes = new int[count];
+		}
+
+		void add(int k) {
+			int to = bucket(rects.maxYs[k]);
+			for (int b = bucket(rects.minYs[k]); b <= to; b++) {
+				int[] es = entries[b];
+				int size = sizes[b];
+				if (es == null) {
+					entries[b] = es = new int[8];
+				} else if (size == es.length) {
+					entries[b] = es = Arrays.copyOf(es, size * 2);
+				}
+				es[size] = k;
+				sizes[b] = size + 1;
+			}
+		}
+
+		// reports the active rects intersecting rect k of the query set, as (active index, query index)
+		void visit(Sorted query, int k, PairConsumer consumer) {
+			int minX = query.minXs[k];
+			int minY = query.minYs[k];
+			int maxX = query.maxXs[k];
+			int maxY = query.maxYs[k];
+			int index = query.indices[k];
+			int to = bucket(maxY);
+			for (int b = bucket(minY); b <= to; b++) {
+				int[] es = entries[b];
+				int size = sizes[b];
+				for (int e = 0; e < size; ) {
+					int j = es[e];
+					int jMaxX = rects.maxXs[j];
+					// this rect cannot intersect any rect yet to be visited
+					if (jMaxX <= minX) {
+						es[e] = es[--size];
+						continue;
+					}
+					e++;
+					int jMinY = rects.minYs[j];
+					if (
+							rects.minXs[j] < maxX && jMaxX > minX &&
+							jMinY < maxY && rects.maxYs[j] > minY &&
+							// report the pair only from the bucket holding the greater of the minimum ys
+							bucket(Math.max(jMinY, minY)) == b
+							) consumer.accept(rects.indices[j], index);
+				}
+				sizes[b] = size;
+			}
+		}
+
+		private int bucket(int y) {
+			return (int) ((y - origin) / bucketHeight);
+		}
+	}
+
+	private IntRectSweep() {}
+}
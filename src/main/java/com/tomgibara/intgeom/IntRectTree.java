@@ -0,0 +1,325 @@
+package com.tomgibara.intgeom;
+
+import java.util.Arrays;
+
+import com.tomgibara.intgeom.IntRectNavigator.TaggedRect;
+
+// a static R-tree, bulk loaded using sort-tile-recursive packing
+final class IntRectTree<T> {
+
+	// statics
+
+	private static final int CAPACITY = 16;
+
+	// node bounds record the extremes of each rect coordinate (and center) beneath the node
+	private static final int MIN_MIN_X = 0;
+	private static final int MAX_MIN_X = 1;
+	private static final int MIN_MIN_Y = 2;
+	private static final int MAX_MIN_Y = 3;
+	private static final int MIN_MAX_X = 4;
+	private static final int MAX_MAX_X = 5;
+	private static final int MIN_MAX_Y = 6;
+	private static final int MAX_MAX_Y = 7;
+	private static final int MIN_CEN_X = 8;
+	private static final int MAX_CEN_X = 9;
+	private static final int MIN_CEN_Y = 10;
+	private static final int MAX_CEN_Y = 11;
+	private static final int STRIDE = 12;
+
+	private static final long EXCLUDED = Long.MAX_VALUE;
+
+	// distances for rects that are not candidates
+	static final int BEHIND = -1; // the rect lies (at least partly) behind the start
+	static final int UNALIGNED = -2; // the rect fails the strict test
+
+	private static int groups(int count) {
+		return (count + CAPACITY - 1) / CAPACITY;
+	}
+
+	private static int center(int min, int max) {
+		return (int) (((long) min + max) >> 1);
+	}
+
+	// sort-tile-recursive ordering of items with the supplied centers
+	private static int[] strOrder(int[] xs, int[] ys) {
+		int count = xs.length;
+		long[] keys = new long[count];
+		for (int i = 0; i < count; i++) {
+			keys[i] = (long) xs[i] << 32 | i;
+		}
+		Arrays.sort(keys);
+		int slices = (int) Math.ceil(Math.sqrt(groups(count)));
+		int sliceSize = slices * CAPACITY;
+		for (int from = 0; from < count; from += sliceSize) {
+			int to = Math.min(from + sliceSize, count);
+			for (int i = from; i < to; i++) {
+				int j = (int) keys[i];
+				keys[i] = (long) ys[j] << 32 | j;
+			}
+			Arrays.sort(keys, from, to);
+		}
+		int[] order = new int[count];
+		for (int i = 0; i < count; i++) {
+			order[i] = (int) keys[i];
+		}
+		return order;
+	}
+
+	// the natural distance to a candidate rect, or a negative value if the rect is not a candidate
+	static int distance(IntRect start, IntRect rect, IntDir dir, boolean strict) {
+		int gap = dir.gap(start, rect);
+		if (gap < 0) return BEHIND;
+		boolean horizontal = dir.axis.horizontal;
+		if (strict && !(horizontal ?
+				rect.minY < start.maxY && rect.maxY > start.minY :
+				rect.minX < start.maxX && rect.maxX > start.minX
+				)) return UNALIGNED;
+		// rects beyond the gap cannot intersect, so the natural distance is the gap plus the offset between edge centers
+		return gap + Math.abs(horizontal ? rect.centerY() - start.centerY() : rect.centerX() - start.centerX());
+	}
+
+	// larger leads are preferred when distances tie, as per the far edge ordering of IntDir.rectComparator
+	static long lead(IntRect rect, IntDir dir) {
+		switch (dir) {
+		case LESS_X : return - (long) rect.minX;
+		case MORE_X : return rect.maxX;
+		case LESS_Y : return - (long) rect.minY;
+		case MORE_Y : return rect.maxY;
+		default: throw new IllegalStateException();
+		}
+	}
+
+	// fields
+
+	private final TaggedRect<T>[] rects; // in tree order
+	private final int[] indices; // the original index of each rect
+	private final int[] bounds; // STRIDE values per node
+	private final int[] firsts; // index of first child (a rect for leaves, a node otherwise)
+	private final int[] lasts; // index after last child
+	private final int leafCount; // leaves are the first nodes
+	private final int root; // the root is the last node
+	private final int depth;
+
+	// constructors
+
+	@SuppressWarnings("unchecked")
+	IntRectTree(TaggedRect<T>[] array) {
+		int count = array.length;
+		if (count == 0) throw new IllegalArgumentException("no rects");
+
+		// order the rects
+		int[] xs = new int[count];
+		int[] ys = new int[count];
+		for (int i = 0; i < count; i++) {
+			IntRect rect = array[i].rect;
+			xs[i] = center(rect.minX, rect.maxX);
+			ys[i] = center(rect.minY, rect.maxY);
+		}
+		indices = strOrder(xs, ys);
+		rects = (TaggedRect<T>[]) new TaggedRect<?>[count];
+		for (int i = 0; i < count; i++) {
+			rects[i] = array[indices[i]];
+		}
+
+		// size the nodes
+		int nodeCount = 0;
+		int depth = 0;
+		for (int c = count; ; depth++) {
+			c = groups(c);
+			nodeCount += c;
+			if (c == 1) break;
+		}
+		this.depth = depth + 1;
+		bounds = new int[nodeCount * STRIDE];
+		firsts = new int[nodeCount];
+		lasts = new int[nodeCount];
+
+		// create the leaves
+		leafCount = groups(count);
+		for (int n = 0; n < leafCount; n++) {
+			int first = n * CAPACITY;
+			int last = Math.min(first + CAPACITY, count);
+			firsts[n] = first;
+			lasts[n] = last;
+			int offset = n * STRIDE;
+			for (int i = first; i < last; i++) {
+				IntRect rect = rects[i].rect;
+				include(offset, i == first, rect.minX, rect.minY, rect.maxX, rect.maxY, rect.centerX(), rect.centerY());
+			}
+		}
+
+		// create the branches
+		int from = 0;
+		int to = leafCount;
+		while (to - from > 1) {
+			int size = to - from;
+			for (int n = from; n < to; n++) {
+				int offset = n * STRIDE;
+				xs[n - from] = center(bounds[offset + MIN_MIN_X], bounds[offset + MAX_MAX_X]);
+				ys[n - from] = center(bounds[offset + MIN_MIN_Y], bounds[offset + MAX_MAX_Y]);
+			}
+			permute(from, strOrder(Arrays.copyOf(xs, size), Arrays.copyOf(ys, size)));
+			int parents = groups(size);
+			for (int p = 0; p < parents; p++) {
+				int n = to + p;
+				int first = from + p * CAPACITY;
+				int last = Math.min(first + CAPACITY, to);
+				firsts[n] = first;
+				lasts[n] = last;
+				int offset = n * STRIDE;
+				for (int c = first; c < last; c++) {
+					include(offset, c == first, c * STRIDE);
+				}
+			}
+			from = to;
+			to += parents;
+		}
+		root = from;
+	}
+
+	// methods
+
+	// the tally may be null
+	TaggedRect<T> findFrom(IntRect start, IntDir dir, boolean strict, Tally tally) {
+		int best = -1;
+		int leastDist = Integer.MAX_VALUE;
+		int[] stack = new int[depth * CAPACITY];
+		int size = 0;
+		stack[size++] = root;
+		while (size > 0) {
+			int node = stack[--size];
+			if (lowerBound(node, start, dir, strict) > leastDist) continue;
+			if (node < leafCount) {
+				for (int i = firsts[node]; i < lasts[node]; i++) {
+					int dist = distance(start, rects[i].rect, dir, strict);
+					if (tally != null) tally.count(dist);
+					if (dist < 0) continue;
+					if (dist < leastDist || dist == leastDist && best != -1 && precedes(i, best, dir)) {
+						best = i;
+						leastDist = dist;
+					}
+				}
+			} else {
+				for (int c = firsts[node]; c < lasts[node]; c++) {
+					if (lowerBound(c, start, dir, strict) <= leastDist) stack[size++] = c;
+				}
+			}
+		}
+		return best == -1 ? null : rects[best];
+	}
+
+	private boolean precedes(int i, int j, IntDir dir) {
+		long li = lead(rects[i].rect, dir);
+		long lj = lead(rects[j].rect, dir);
+		return li == lj ? indices[i] > indices[j] : li > lj;
+	}
+
+	// the least distance of any candidate beneath the node, or EXCLUDED if there can be none
+	private long lowerBound(int node, IntRect start, IntDir dir, boolean strict) {
+		int offset = node * STRIDE;
+		long gap;
+		switch (dir) {
+		case LESS_X:
+			if (bounds[offset + MIN_MAX_X] > start.minX) return EXCLUDED;
+			gap = (long) start.minX - bounds[offset + MAX_MAX_X];
+			break;
+		case MORE_X:
+			if (bounds[offset + MAX_MIN_X] < start.maxX) return EXCLUDED;
+			gap = (long) bounds[offset + MIN_MIN_X] - start.maxX;
+			break;
+		case LESS_Y:
+			if (bounds[offset + MIN_MAX_Y] > start.minY) return EXCLUDED;
+			gap = (long) start.minY - bounds[offset + MAX_MAX_Y];
+			break;
+		case MORE_Y:
+			if (bounds[offset + MAX_MIN_Y] < start.maxY) return EXCLUDED;
+			gap = (long) bounds[offset + MIN_MIN_Y] - start.maxY;
+			break;
+		default: throw new IllegalStateException();
+		}
+		int center;
+		int minCenter;
+		int maxCenter;
+		if (dir.axis.horizontal) {
+			if (strict && (bounds[offset + MIN_MIN_Y] >= start.maxY || bounds[offset + MAX_MAX_Y] <= start.minY)) return EXCLUDED;
+			center = start.centerY();
+			minCenter = bounds[offset + MIN_CEN_Y];
+			maxCenter = bounds[offset + MAX_CEN_Y];
+		} else {
+			if (strict && (bounds[offset + MIN_MIN_X] >= start.maxX || bounds[offset + MAX_MAX_X] <= start.minX)) return EXCLUDED;
+			center = start.centerX();
+			minCenter = bounds[offset + MIN_CEN_X];
+			maxCenter = bounds[offset + MAX_CEN_X];
+		}
+		long offCenter;
+		if (center < minCenter) {
+			offCenter = (long) minCenter - center;
+		} else if (center > maxCenter) {
+			offCenter = (long) center - maxCenter;
+		} else {
+			offCenter = 0L;
+		}
+		return Math.max(gap, 0L) + offCenter;
+	}
+
+	private void include(int offset, boolean first, int minX, int minY, int maxX, int maxY, int cenX, int cenY) {
+		include(offset, first, MIN_MIN_X, MAX_MIN_X, minX);
+		include(offset, first, MIN_MIN_Y, MAX_MIN_Y, minY);
+		include(offset, first, MIN_MAX_X, MAX_MAX_X, maxX);
+		include(offset, first, MIN_MAX_Y, MAX_MAX_Y, maxY);
+		include(offset, first, MIN_CEN_X, MAX_CEN_X, cenX);
+		include(offset, first, MIN_CEN_Y, MAX_CEN_Y, cenY);
+	}
+
+	private void include(int offset, boolean first, int lower, int upper, int value) {
+		if (first) {
+			bounds[offset + lower] = value;
+			bounds[offset + upper] = value;
+		} else {
+			bounds[offset + lower] = Math.min(bounds[offset + lower], value);
+			bounds[offset + upper] = Math.max(bounds[offset + upper], value);
+		}
+	}
+
+	private void include(int offset, boolean first, int childOffset) {
+		if (first) {
+			System.arraycopy(bounds, childOffset, bounds, offset, STRIDE);
+		} else {
+			for (int i = 0; i < STRIDE; i += 2) {
+				bounds[offset + i    ] = Math.min(bounds[offset + i    ], bounds[childOffset + i    ]);
+				bounds[offset + i + 1] = Math.max(bounds[offset + i + 1], bounds[childOffset + i + 1]);
+			}
+		}
+	}
+
+	// reorders the nodes starting at from
+	private void permute(int from, int[] order) {
+		int size = order.length;
+		int[] bs = Arrays.copyOfRange(bounds, from * STRIDE, (from + size) * STRIDE);
+		int[] fs = Arrays.copyOfRange(firsts, from, from + size);
+		int[] ls = Arrays.copyOfRange(lasts, from, from + size);
+		for (int i = 0; i < size; i++) {
+			int j = order[i];
+			System.arraycopy(bs, j * STRIDE, bounds, (from + i) * STRIDE, STRIDE);
+			firsts[from + i] = fs[j];
+			lasts[from + i] = ls[j];
+		}
+	}
+
+	// inner classes
+
+	// counts the rects examined by searches
+	static final class Tally {
+
+		int scanned;
+		int behind;
+		int unaligned;
+
+		void count(int dist) {
+			scanned++;
+			if (dist == BEHIND) behind++;
+			else if (dist == UNALIGNED) unaligned++;
+		}
+	}
+
+}
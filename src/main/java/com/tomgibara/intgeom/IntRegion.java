@@ -0,0 +1,382 @@
+package com.tomgibara.intgeom;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+
+// a union of rects, stored as y-sorted bands of x-sorted spans
+public final class IntRegion {
+
+	// statics
+
+	// truth tables indexed by (inA ? 2 : 0) | (inB ? 1 : 0)
+	private static final int OP_UNION     = 0b1110;
+	private static final int OP_INTERSECT = 0b1000;
+	private static final int OP_SUBTRACT  = 0b0100;
+	private static final int OP_XOR       = 0b0110;
+
+	private static final int[] NO_INTS = new int[0];
+	private static final int[] NO_BANDS = new int[] { 0 };
+
+	private static final IntRegion EMPTY = new IntRegion(NO_INTS, NO_BANDS, NO_INTS);
+
+	public static IntRegion empty() {
+		return EMPTY;
+	}
+
+	public static IntRegion of(IntRect rect) {
+		if (rect == null) throw new IllegalArgumentException("null rect");
+		if (rect.isDegenerate()) return EMPTY;
+		return new IntRegion(new int[] { rect.minY, rect.maxY }, new int[] { 0, 2 }, new int[] { rect.minX, rect.maxX });
+	}
+
+	public static IntRegion unionOf(Collection<IntRect> rects) {
+		if (rects == null) throw new IllegalArgumentException("null rects");
+		if (rects.contains(null)) throw new IllegalArgumentException("null rect");
+		IntRegion[] regions = new IntRegion[rects.size()];
+		Iterator<IntRect> it = rects.iterator();
+		for (int i = 0; i < regions.length; i++) {
+			regions[i] = of(it.next());
+		}
+		// pairwise to avoid quadratic growth
+		for (int count = regions.length; count > 1; count = (count + 1) / 2) {
+			for (int i = 0; i < count / 2; i++) {
+				regions[i] = regions[2 * i].union(regions[2 * i + 1]);
+			}
+			if ((count & 1) == 1) regions[count / 2] = regions[count - 1];
+		}
+		return regions.length == 0 ? EMPTY : regions[0];
+	}
+
+	private static boolean includes(int op, boolean inA, boolean inB) {
+		return (op >> ((inA ? 2 : 0) | (inB ? 1 : 0)) & 1) == 1;
+	}
+
+	// fields
+
+	private final int[] bandYs; // minY and maxY of each band
+	private final int[] bandStarts; // index of each band's first span in spans, with a final entry for the length
+	private final int[] spans; // minX and maxX of each span
+
+	// constructors
+
+	private IntRegion(int[] bandYs, int[] bandStarts, int[] spans) {
+		this.bandYs = bandYs;
+		this.bandStarts = bandStarts;
+		this.spans = spans;
+	}
+
+	// methods
+
+	public boolean isEmpty() {
+		return spans.length == 0;
+	}
+
+	public boolean isRect() {
+		return spans.length == 2;
+	}
+
+	public int rectCount() {
+		return spans.length >> 1;
+	}
+
+	public long area() {
+		long area = 0L;
+		for (int b = 0; b < bandCount(); b++) {
+			long height = (long) bandYs[2 * b + 1] - bandYs[2 * b];
+			long width = 0L;
+			for (int s = bandStarts[b]; s < bandStarts[b + 1]; s += 2) {
+				width += (long) spans[s + 1] - spans[s];
+			}
+			area += height * width;
+		}
+		return area;
+	}
+
+	public Optional<IntRect> bounds() {
+		if (isEmpty()) return Optional.empty();
+		int minX = Integer.MAX_VALUE;
+		int maxX = Integer.MIN_VALUE;
+		for (int b = 0; b < bandCount(); b++) {
+			minX = Math.min(minX, spans[bandStarts[b]]);
+			maxX = Math.max(maxX, spans[bandStarts[b + 1] - 1]);
+		}
+		return Optional.of(new IntRect(minX, bandYs[0], maxX, bandYs[bandYs.length - 1]));
+	}
+
+	public boolean containsUnit(int x, int y) {
+		int b = bandIndex(y);
+		if (b < 0) return false;
+		int from = bandStarts[b];
+		int to = bandStarts[b + 1];
+		// find the last span starting at or before x
+		int i = Arrays.binarySearch(spans, from, to, x);
+		if (i < 0) i = -2 - i;
+		if (i < from) return false;
+		// even indices are span starts, odd are span ends (exclusive)
+		return (i - from & 1) == 0;
+	}
+
+	public boolean containsUnit(IntCoords coords) {
+		if (coords == null) throw new IllegalArgumentException("null coords");
+		return containsUnit(coords.x, coords.y);
+	}
+
+	public boolean containsRect(IntRect rect) {
+		if (rect == null) throw new IllegalArgumentException("null rect");
+		return of(rect).subtract(this).isEmpty();
+	}
+
+	public boolean containsRegion(IntRegion that) {
+		if (that == null) throw new IllegalArgumentException("null that");
+		return that.subtract(this).isEmpty();
+	}
+
+	public boolean intersectsRect(IntRect rect) {
+		if (rect == null) throw new IllegalArgumentException("null rect");
+		return !intersection(of(rect)).isEmpty();
+	}
+
+	public boolean intersectsRegion(IntRegion that) {
+		if (that == null) throw new IllegalArgumentException("null that");
+		return !intersection(that).isEmpty();
+	}
+
+	public IntRegion union(IntRegion that) {
+		if (that == null) throw new IllegalArgumentException("null that");
+		if (this.isEmpty()) return that;
+		if (that.isEmpty()) return this;
+		return combine(this, that, OP_UNION);
+	}
+
+	public IntRegion union(IntRect rect) {
+		return union(of(rect));
+	}
+
+	public IntRegion intersection(IntRegion that) {
+		if (that == null) throw new IllegalArgumentException("null that");
+		if (this.isEmpty()) return this;
+		if (that.isEmpty()) return that;
+		return combine(this, that, OP_INTERSECT);
+	}
+
+	public IntRegion intersection(IntRect rect) {
+		return intersection(of(rect));
+	}
+
+	public IntRegion subtract(IntRegion that) {
+		if (that == null) throw new IllegalArgumentException("null that");
+		if (this.isEmpty() || that.isEmpty()) return this;
+		return combine(this, that, OP_SUBTRACT);
+	}
+
+	public IntRegion subtract(IntRect rect) {
+		return subtract(of(rect));
+	}
+
+	public IntRegion xor(IntRegion that) {
+		if (that == null) throw new IllegalArgumentException("null that");
+		if (this.isEmpty()) return that;
+		if (that.isEmpty()) return this;
+		return combine(this, that, OP_XOR);
+	}
+
+	public IntRegion xor(IntRect rect) {
+		return xor(of(rect));
+	}
+
+	public IntRegion translatedBy(int x, int y) {
+		if (x == 0 && y == 0 || isEmpty()) return this;
+		int[] ys = bandYs.clone();
+		for (int i = 0; i < ys.length; i++) ys[i] += y;
+		int[] xs = spans.clone();
+		for (int i = 0; i < xs.length; i++) xs[i] += x;
+		return new IntRegion(ys, bandStarts, xs);
+	}
+
+	public IntRegion translatedBy(IntVector vector) {
+		if (vector == null) throw new IllegalArgumentException("null vector");
+		return translatedBy(vector.x, vector.y);
+	}
+
+	// the disjoint rects that make up the region, in y then x order
+	public List<IntRect> rects() {
+		return new AbstractList<IntRect>() {
+			@Override public int size() { return rectCount(); }
+			@Override public IntRect get(int index) {
+				if (index < 0 || index >= size()) throw new IndexOutOfBoundsException();
+				int s = index << 1;
+				int b = Arrays.binarySearch(bandStarts, s);
+				// spans are never empty, so a miss falls within the preceding band
+				if (b < 0) b = -2 - b;
+				return new IntRect(spans[s], bandYs[2 * b], spans[s + 1], bandYs[2 * b + 1]);
+			}
+		};
+	}
+
+	private int bandCount() {
+		return bandStarts.length - 1;
+	}
+
+	// the index of the band containing y, or -1
+	private int bandIndex(int y) {
+		int lo = 0;
+		int hi = bandCount() - 1;
+		while (lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+			if (y < bandYs[2 * mid]) {
+				hi = mid - 1;
+			} else if (y >= bandYs[2 * mid + 1]) {
+				lo = mid + 1;
+			} else {
+				return mid;
+			}
+		}
+		return -1;
+	}
+
+	// object methods
+
+	@Override
+	public int hashCode() {
+		return Arrays.hashCode(bandYs) + 31 * (Arrays.hashCode(bandStarts) + 31 * Arrays.hashCode(spans));
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (obj == this) return true;
+		if (!(obj instanceof IntRegion)) return false;
+		IntRegion that = (IntRegion) obj;
+		// the representation is canonical
+		return
+				Arrays.equals(this.bandYs, that.bandYs) &&
+				Arrays.equals(this.bandStarts, that.bandStarts) &&
+				Arrays.equals(this.spans, that.spans);
+	}
+
+	@Override
+	public String toString() {
+		return rects().toString();
+	}
+
+	// combination
+
+	// sweeps both regions band by band, combining the spans of coincident bands
+	private static IntRegion combine(IntRegion a, IntRegion b, int op) {
+		Builder builder = new Builder(a.bandCount() + b.bandCount(), a.spans.length + b.spans.length);
+		int na = a.bandCount();
+		int nb = b.bandCount();
+		int ia = 0;
+		int ib = 0;
+		int y = Integer.MIN_VALUE;
+		while (ia < na || ib < nb) {
+			int aTop = ia < na ? Math.max(a.bandYs[2 * ia], y) : Integer.MAX_VALUE;
+			int bTop = ib < nb ? Math.max(b.bandYs[2 * ib], y) : Integer.MAX_VALUE;
+			int top = Math.min(aTop, bTop);
+			boolean inA = ia < na && aTop == top;
+			boolean inB = ib < nb && bTop == top;
+			int aBot = inA ? a.bandYs[2 * ia + 1] : aTop;
+			int bBot = inB ? b.bandYs[2 * ib + 1] : bTop;
+			int bot = Math.min(aBot, bBot);
+			if (inA && includes(op, true, false) || inB && includes(op, false, true) || inA && inB && includes(op, true, true)) {
+				builder.startBand();
+				combineSpans(
+						a.spans, inA ? a.bandStarts[ia] : 0, inA ? a.bandStarts[ia + 1] : 0,
+						b.spans, inB ? b.bandStarts[ib] : 0, inB ? b.bandStarts[ib + 1] : 0,
+						op, builder);
+				builder.endBand(top, bot);
+			}
+			y = bot;
+			if (inA && aBot == bot) ia++;
+			if (inB && bBot == bot) ib++;
+		}
+		return builder.build();
+	}
+
+	private static void combineSpans(int[] as, int ai, int aj, int[] bs, int bi, int bj, int op, Builder builder) {
+		boolean inA = false;
+		boolean inB = false;
+		boolean in = false;
+		while (ai < aj || bi < bj) {
+			int x = Math.min(ai < aj ? as[ai] : Integer.MAX_VALUE, bi < bj ? bs[bi] : Integer.MAX_VALUE);
+			// span boundaries are strictly increasing, so each list contributes at most one toggle
+			if (ai < aj && as[ai] == x) {
+				inA = !inA;
+				ai++;
+			}
+			if (bi < bj && bs[bi] == x) {
+				inB = !inB;
+				bi++;
+			}
+			boolean out = includes(op, inA, inB);
+			if (out != in) {
+				builder.addBoundary(x);
+				in = out;
+			}
+		}
+	}
+
+	private static final class Builder {
+
+		private int[] bandYs;
+		private int[] bandStarts;
+		private int[] spans;
+		private int bandCount = 0;
+		private int spanLength = 0;
+		private int bandStart;
+
+		Builder(int bands, int spans) {
+			bandYs = new int[2 * bands];
+			bandStarts = new int[bands + 1];
+			this.spans = new int[spans];
+		}
+
+		void startBand() {
+			bandStart = spanLength;
+		}
+
+		void addBoundary(int x) {
+			if (spanLength == spans.length) spans = Arrays.copyOf(spans, spans.length * 2 + 2);
+			spans[spanLength++] = x;
+		}
+
+		void endBand(int minY, int maxY) {
+			int length = spanLength - bandStart;
+			if (length == 0) return;
+			// coalesce with the previous band if it abuts and has identical spans
+			if (bandCount > 0 && bandYs[2 * bandCount - 1] == minY) {
+				int prevStart = bandStarts[bandCount - 1];
+				if (bandStart - prevStart == length && rangeEquals(prevStart, bandStart, length)) {
+					bandYs[2 * bandCount - 1] = maxY;
+					spanLength = bandStart;
+					return;
+				}
+			}
+			if (2 * bandCount == bandYs.length) {
+				bandYs = Arrays.copyOf(bandYs, bandYs.length * 2 + 2);
+				bandStarts = Arrays.copyOf(bandStarts, bandCount * 2 + 2);
+			}
+			bandYs[2 * bandCount] = minY;
+			bandYs[2 * bandCount + 1] = maxY;
+			bandStarts[bandCount] = bandStart;
+			bandCount++;
+		}
+
+		IntRegion build() {
+			if (bandCount == 0) return EMPTY;
+			int[] starts = Arrays.copyOf(bandStarts, bandCount + 1);
+			starts[bandCount] = spanLength;
+			return new IntRegion(Arrays.copyOf(bandYs, 2 * bandCount), starts, Arrays.copyOf(spans, spanLength));
+		}
+
+		private boolean rangeEquals(int i, int j, int length) {
+			for (int k = 0; k < length; k++) {
+				if (spans[i + k] != spans[j + k]) return false;
+			}
+			return true;
+		}
+	}
+}
@@ -0,0 +1,152 @@
+package com.tomgibara.intgeom;
+
+import java.util.stream.IntStream;
+
+// sums of the values over every sub-rect of a domain, from values laid out by IntRect.rowMajorIndex
+public final class IntSummedAreaTable {
+
+	// statics
+
+	// columns are summed in blocks of this many to keep parallel passes cache friendly
+	private static final int COLUMN_BLOCK = 256;
+
+	// fields
+
+	public final IntRect domain;
+
+	private final int width;
+	private final int height;
+	private final int stride; // width + 1, the table has a leading row and column of zeros
+	private final long[] sums;
+
+	// constructors
+
+	public IntSummedAreaTable(IntRect domain) {
+		if (domain == null) throw new IllegalArgumentException("null domain");
+		long width = (long) domain.maxX - domain.minX;
+		long height = (long) domain.maxY - domain.minY;
+		if (width < 0L || height < 0L) throw new IllegalArgumentException("invalid domain");
+		if ((width + 1) * (height + 1) > Integer.MAX_VALUE - 8) throw new IllegalArgumentException("domain too large");
+		this.domain = domain;
+		this.width = (int) width;
+		this.height = (int) height;
+		this.stride = this.width + 1;
+		sums = new long[stride * (this.height + 1)];
+	}
+
+	// building
+
+	public void build(int[] values) {
+		checkValues(values == null ? -1 : values.length);
+		for (int y = 0; y < height; y++) sumRow(values, y, 0);
+		for (int y = 0; y < height; y++) sumColumns(y, 0, width);
+	}
+
+	public void build(long[] values) {
+		checkValues(values == null ? -1 : values.length);
+		for (int y = 0; y < height; y++) sumRow(values, y, 0);
+		for (int y = 0; y < height; y++) sumColumns(y, 0, width);
+	}
+
+	// sums rows, then blocks of columns, on the common fork-join pool
+	public void buildParallel(int[] values) {
+		checkValues(values == null ? -1 : values.length);
+		IntStream.range(0, height).parallel().forEach(y -> sumRow(values, y, 0));
+		sumColumnsParallel();
+	}
+
+	public void buildParallel(long[] values) {
+		checkValues(values == null ? -1 : values.length);
+		IntStream.range(0, height).parallel().forEach(y -> sumRow(values, y, 0));
+		sumColumnsParallel();
+	}
+
+	// sums below and to the right of the dirty rect depend on it, so all of those are recomputed
+	public void rebuild(int[] values, IntRect dirty) {
+		checkValues(values == null ? -1 : values.length);
+		if (dirty == null) throw new IllegalArgumentException("null dirty");
+		if (!domain.intersectsRect(dirty)) return;
+		int fromX = Math.max(dirty.minX, domain.minX) - domain.minX;
+		int fromY = Math.max(dirty.minY, domain.minY) - domain.minY;
+		for (int y = fromY; y < height; y++) sumRow(values, y, fromX);
+		for (int y = fromY; y < height; y++) sumColumns(y, fromX, width);
+	}
+
+	public void rebuild(long[] values, IntRect dirty) {
+		checkValues(values == null ? -1 : values.length);
+		if (dirty == null) throw new IllegalArgumentException("null dirty");
+		if (!domain.intersectsRect(dirty)) return;
+		int fromX = Math.max(dirty.minX, domain.minX) - domain.minX;
+		int fromY = Math.max(dirty.minY, domain.minY) - domain.minY;
+		for (int y = fromY; y < height; y++) sumRow(values, y, fromX);
+		for (int y = fromY; y < height; y++) sumColumns(y, fromX, width);
+	}
+
+	// queries
+
+	public long total() {
+		return sums[sums.length - 1];
+	}
+
+	// the sum of the values of the units in the rect that lie within the domain
+	public long sum(IntRect rect) {
+		if (rect == null) throw new IllegalArgumentException("null rect");
+		if (!domain.intersectsRect(rect)) return 0L;
+		int x0 = Math.max(rect.minX, domain.minX) - domain.minX;
+		int y0 = Math.max(rect.minY, domain.minY) - domain.minY;
+		int x1 = Math.min(rect.maxX, domain.maxX) - domain.minX;
+		int y1 = Math.min(rect.maxY, domain.maxY) - domain.minY;
+		if (x0 >= x1 || y0 >= y1) return 0L;
+		return sums[y1 * stride + x1] - sums[y0 * stride + x1] - sums[y1 * stride + x0] + sums[y0 * stride + x0];
+	}
+
+	public long sum(int minX, int minY, int maxX, int maxY) {
+		return sum(IntRect.bounded(minX, minY, maxX, maxY));
+	}
+
+	// row y of the table (offset by one) takes the prefix sums of row y of the values
+
+	private void sumRow(int[] values, int y, int fromX) {
+		int src = y * width;
+		int dst = (y + 1) * stride + 1;
+		long sum = fromX == 0 ? 0L : sums[dst + fromX - 1] - sums[dst - stride + fromX - 1];
+		for (int x = fromX; x < width; x++) {
+			sum += values[src + x];
+			sums[dst + x] = sum;
+		}
+	}
+
+	private void sumRow(long[] values, int y, int fromX) {
+		int src = y * width;
+		int dst = (y + 1) * stride + 1;
+		long sum = fromX == 0 ? 0L : sums[dst + fromX - 1] - sums[dst - stride + fromX - 1];
+		for (int x = fromX; x < width; x++) {
+			sum += values[src + x];
+			sums[dst + x] = sum;
+		}
+	}
+
+	// adds the previous row of the table to row y, which must hold only its own prefix sums
+	private void sumColumns(int y, int fromX, int toX) {
+		int dst = (y + 1) * stride + 1;
+		int src = dst - stride;
+		for (int x = fromX; x < toX; x++) {
+			sums[dst + x] += sums[src + x];
+		}
+	}
+
+	private void sumColumnsParallel() {
+		int blocks = (width + COLUMN_BLOCK - 1) / COLUMN_BLOCK;
+		IntStream.range(0, blocks).parallel().forEach(b -> {
+			int fromX = b * COLUMN_BLOCK;
+			int toX = Math.min(fromX + COLUMN_BLOCK, width);
+			for (int y = 0; y < height; y++) sumColumns(y, fromX, toX);
+		});
+	}
+
+	private void checkValues(int length) {
+		if (length < 0) throw new IllegalArgumentException("null values");
+		if (length != width * height) throw new IllegalArgumentException("values do not match domain");
+	}
+
+}
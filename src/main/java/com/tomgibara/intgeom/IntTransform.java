@@ -1,5 +1,7 @@
 package com.tomgibara.intgeom;
 
+import java.nio.LongBuffer;
+
 // those affine transforms that are guaranteed to preserve 'integerness'
 public final class IntTransform implements IntTransformable<IntTransform> {
 
@@ -15,46 +17,126 @@ public final class IntTransform implements IntTransformable<IntTransform> {
 	private static final int RIGHT_MASK =    ORIGIN_PRESERVING | /*maybe skew p*/  SCALE_PRESERVING | CHIRAL_PRESERVING | CIRCLE_PRESERVING | RECTILNEAR_PRESERVING;
 	private static final int IDENTITY_MASK = RIGHT_MASK | SKEW_PRESERVING;
 
-	private static final IntTransform IDENTITY = new IntTransform( 1,  0,  0,  1,  0,  0, IDENTITY_MASK );
-	private static final IntTransform ROT_90 =   new IntTransform( 0, -1,  1,  0,  0,  0, RIGHT_MASK    );
-	private static final IntTransform ROT_180 =  new IntTransform(-1,  0,  0, -1,  0,  0, IDENTITY_MASK );
-	private static final IntTransform ROT_270 =  new IntTransform( 0,  1,  0, -1,  0,  0, RIGHT_MASK    );
+	// the eight orientations of the dihedral group: orientation r is r quarter turns, orientation r + 4 reflects x before turning
+	// each is stored as the components m00, m10, m01, m11
+	private static final int NOT_DIHEDRAL = -1;
+	private static final int ORIENTATION_COUNT = 8;
+	private static final int[][] ORIENTATIONS = new int[ORIENTATION_COUNT][];
+	private static final int[][] COMPOSITIONS = new int[ORIENTATION_COUNT][ORIENTATION_COUNT]; // orientation of [a] times [b]
+	private static final int[] INVERSES = new int[ORIENTATION_COUNT];
+	private static final int[] ORIENTATION_FLAGS = new int[ORIENTATION_COUNT]; // flags of the origin preserving transforms
+
+	static {
+		int[] turn = { 0, -1, 1, 0 };
+		int[] reflect = { -1, 0, 0, 1 };
+		int[] linear = { 1, 0, 0, 1 };
+		for (int r = 0; r < 4; r++) {
+			ORIENTATIONS[r] = linear;
+			ORIENTATIONS[r + 4] = multiply(linear, reflect);
+			linear = multiply(turn, linear);
+		}
+		for (int a = 0; a < ORIENTATION_COUNT; a++) {
+			for (int b = 0; b < ORIENTATION_COUNT; b++) {
+				int[] m = multiply(ORIENTATIONS[a], ORIENTATIONS[b]);
+				int c = orientationOf(m[0], m[1], m[2], m[3]);
+				COMPOSITIONS[a][b] = c;
+				if (c == 0) INVERSES[a] = b;
+			}
+			int[] m = ORIENTATIONS[a];
+			int flags = ORIGIN_PRESERVING | SCALE_PRESERVING | RECTILNEAR_PRESERVING;
+			if (m[1] == 0) flags |= SKEW_PRESERVING;
+			if (a < 4) flags |= CHIRAL_PRESERVING | CIRCLE_PRESERVING;
+			ORIENTATION_FLAGS[a] = flags;
+		}
+	}
+
+	// cached origin preserving transforms for each orientation
+	private static final IntTransform[] DIHEDRALS = new IntTransform[ORIENTATION_COUNT];
+
+	static {
+		for (int o = 0; o < ORIENTATION_COUNT; o++) {
+			int[] m = ORIENTATIONS[o];
+			DIHEDRALS[o] = new IntTransform(m[0], m[1], m[2], m[3], 0, 0, ORIENTATION_FLAGS[o], o);
+		}
+	}
+
+	private static final IntTransform IDENTITY = DIHEDRALS[0];
+
+	private static int[] multiply(int[] a, int[] b) {
+		return new int[] {
+				a[0] * b[0] + a[2] * b[1],
+				a[1] * b[0] + a[3] * b[1],
+				a[0] * b[2] + a[2] * b[3],
+				a[1] * b[2] + a[3] * b[3],
+		};
+	}
+
+	private static int orientationOf(int m00, int m10, int m01, int m11) {
+		for (int o = 0; o < ORIENTATION_COUNT; o++) {
+			int[] m = ORIENTATIONS[o];
+			if (m[0] == m00 && m[1] == m10 && m[2] == m01 && m[3] == m11) return o;
+		}
+		return NOT_DIHEDRAL;
+	}
+
+	// the orientation applied to the coordinates, as an IntPair
+	private static long orient(int orientation, int x, int y) {
+		switch (orientation) {
+		case 0 : return IntPair.fromInts( x,  y);
+		case 1 : return IntPair.fromInts( y, -x);
+		case 2 : return IntPair.fromInts(-x, -y);
+		case 3 : return IntPair.fromInts(-y,  x);
+		case 4 : return IntPair.fromInts(-x,  y);
+		case 5 : return IntPair.fromInts( y,  x);
+		case 6 : return IntPair.fromInts( x, -y);
+		case 7 : return IntPair.fromInts(-y, -x);
+		default: throw new IllegalStateException();
+		}
+	}
+
+	// an orientation followed by a translation, origin preserving instances are cached
+	private static IntTransform dihedral(int orientation, int x, int y) {
+		if (x == 0 && y == 0) return DIHEDRALS[orientation];
+		int[] m = ORIENTATIONS[orientation];
+		return new IntTransform(m[0], m[1], m[2], m[3], x, y, ORIENTATION_FLAGS[orientation] & ~ORIGIN_PRESERVING, orientation);
+	}
 
 	public static IntTransform identity() {
 		return IDENTITY;
 	}
 
 	public static IntTransform rotateRightAngles(int quarterTurns) {
-		switch (quarterTurns & 3) {
-		case  0 : return IDENTITY;
-		case  1 : return ROT_90;
-		case  2 : return ROT_180;
-		case  3 : return ROT_270;
-		default : throw new IllegalStateException();
-		}
+		return DIHEDRALS[quarterTurns & 3];
+	}
+
+	// reflected transforms negate x before turning
+	public static IntTransform orientation(int quarterTurns, boolean reflected) {
+		return DIHEDRALS[(quarterTurns & 3) + (reflected ? 4 : 0)];
+	}
+
+	// the reflection that negates coordinates on the specified axis
+	public static IntTransform reflection(IntAxis axis) {
+		if (axis == null) throw new IllegalArgumentException("null axis");
+		return DIHEDRALS[axis == IntAxis.X ? 4 : 6];
 	}
 
 	public static IntTransform translation(int x, int y) {
-		if (x == 0 && y == 0) return IDENTITY;
-		return new IntTransform(1, 0, 0, 1, x, y, SKEW_PRESERVING | SCALE_PRESERVING | CHIRAL_PRESERVING | CIRCLE_PRESERVING | RECTILNEAR_PRESERVING);
+		return dihedral(0, x, y);
 	}
 
 	public static IntTransform rotationAbout(IntCoords pt, int quarterTurns) {
-		// trivial cases
-		if (pt.isOrigin()) return rotateRightAngles(quarterTurns);
-		if ((quarterTurns & 3) == 0) return IDENTITY;
-		//TODO make an optimize version of this
-		IntTransform a = IntTransform.translation(-pt.x, -pt.y);
-		IntTransform b = IntTransform.rotateRightAngles(quarterTurns);
-		IntTransform c = IntTransform.translation(pt.x, pt.y);
-		return a.apply(b).apply(c);
+		if (pt == null) throw new IllegalArgumentException("null pt");
+		int orientation = quarterTurns & 3;
+		// the point is fixed, so the translation is the point less its rotation
+		long rotated = orient(orientation, pt.x, pt.y);
+		return dihedral(orientation, pt.x - IntPair.xOf(rotated), pt.y - IntPair.yOf(rotated));
 	}
 
 	public static IntTransform scale(int s) {
 		if (s == 0) throw new IllegalArgumentException("non-invertible");
 		if (s == 1) return IDENTITY;
+		if (s == -1) return DIHEDRALS[2];
 		int flags = ORIGIN_PRESERVING | SKEW_PRESERVING | CHIRAL_PRESERVING | CIRCLE_PRESERVING | RECTILNEAR_PRESERVING;
-		if (s == -1) flags |= SCALE_PRESERVING;
 		return new IntTransform(s, 0, 0, s, 0, 0, flags);
 	}
 
@@ -66,6 +148,7 @@ public final class IntTransform implements IntTransformable<IntTransform> {
 	public static IntTransform scaleAbout(IntCoords pt, int sx, int sy) {
 		if (sx == 0f || sy == 0f) throw new IllegalArgumentException("non-invertible");
 		if (sx == 1f && sy == 1f) return IDENTITY;
+		if (Math.abs(sx) == 1 && Math.abs(sy) == 1) return dihedral(orientationOf(sx, 0, 0, sy), (1 - sx) * pt.x, (1 - sy) * pt.y);
 		int flags = SKEW_PRESERVING | RECTILNEAR_PRESERVING;
 		if (pt.isOrigin()) flags |= ORIGIN_PRESERVING;
 		if (sx > 0 == sy > 0) flags |= CHIRAL_PRESERVING;
@@ -73,10 +156,13 @@ public final class IntTransform implements IntTransformable<IntTransform> {
 	}
 
 	public static IntTransform components(int m00, int m10, int m01, int m11, int m02, int m12) {
+		int orientation = orientationOf(m00, m10, m01, m11);
+		if (orientation != NOT_DIHEDRAL) return dihedral(orientation, m02, m12);
 		return new IntTransform(m00, m10, m01, m11, m02, m12);
 	}
 
 	private final int flags;
+	private final int orientation; // NOT_DIHEDRAL unless the linear part is a right angle rotation or reflection
 
 	public final int m00; // scale x
 	public final int m10; // shear y
@@ -103,12 +189,17 @@ public final class IntTransform implements IntTransformable<IntTransform> {
 		if (m10 == 0f && m01 == 0f) flags |= SKEW_PRESERVING;
 		if (Math.abs(det) == 1) flags |= SCALE_PRESERVING;
 		if (m10 == -m01 && m00 == m11) flags |= CIRCLE_PRESERVING;
-		if (det < 0f) flags |= CHIRAL_PRESERVING;
+		if (det > 0f) flags |= CHIRAL_PRESERVING;
 		if (m10 == 0f && m01 == 0f) flags |= RECTILNEAR_PRESERVING;
 		this.flags = flags;
+		orientation = orientationOf(m00, m10, m01, m11);
 	}
 
 	private IntTransform(int m00, int m10, int m01, int m11, int m02, int m12, int flags) {
+		this(m00, m10, m01, m11, m02, m12, flags, orientationOf(m00, m10, m01, m11));
+	}
+
+	private IntTransform(int m00, int m10, int m01, int m11, int m02, int m12, int flags, int orientation) {
 		this.m00 = m00;
 		this.m10 = m10;
 		this.m01 = m01;
@@ -116,6 +207,7 @@ public final class IntTransform implements IntTransformable<IntTransform> {
 		this.m02 = m02;
 		this.m12 = m12;
 		this.flags = flags;
+		this.orientation = orientation;
 	}
 
 	public boolean isIdentity() {
@@ -146,6 +238,11 @@ public final class IntTransform implements IntTransformable<IntTransform> {
 		return (flags & CIRCLE_PRESERVING) == CIRCLE_PRESERVING;
 	}
 
+	// true if the transform is a combination of right angle rotations, reflections and translations
+	public boolean isDihedral() {
+		return orientation != NOT_DIHEDRAL;
+	}
+
 	public int[] getComponents() {
 		return new int[] { m00, m10, m01, m11, m02, m12 };
 	}
@@ -175,20 +272,95 @@ public final class IntTransform implements IntTransformable<IntTransform> {
 		return isIdentity() ? coords : IntPair.toCoords(transformImpl(IntPair.fromCoords(coords)));
 	}
 
+	// src and dst may be the same array, provided that the offsets match
+	public void transform(long[] src, int srcOffset, long[] dst, int dstOffset, int count) {
+		if (src == null) throw new IllegalArgumentException("null src");
+		if (dst == null) throw new IllegalArgumentException("null dst");
+		if (count < 0) throw new IllegalArgumentException("negative count");
+		checkRange(src.length, srcOffset, count, "src");
+		checkRange(dst.length, dstOffset, count, "dst");
+
+		if (isIdentity()) {
+			System.arraycopy(src, srcOffset, dst, dstOffset, count);
+		} else if (isTranslation()) {
+			translateImpl(src, srcOffset, dst, dstOffset, count);
+		} else if (isSkewPreserving()) {
+			scaleImpl(src, srcOffset, dst, dstOffset, count);
+		} else if (m00 == 0 && m11 == 0) {
+			swapImpl(src, srcOffset, dst, dstOffset, count);
+		} else {
+			affineImpl(src, srcOffset, dst, dstOffset, count);
+		}
+	}
+
+	// offsets are absolute, the positions and limits of the buffers are not modified
+	public void transform(LongBuffer src, int srcOffset, LongBuffer dst, int dstOffset, int count) {
+		if (src == null) throw new IllegalArgumentException("null src");
+		if (dst == null) throw new IllegalArgumentException("null dst");
+		if (count < 0) throw new IllegalArgumentException("negative count");
+		checkRange(src.limit(), srcOffset, count, "src");
+		checkRange(dst.limit(), dstOffset, count, "dst");
+		if (dst.isReadOnly()) throw new IllegalArgumentException("read-only dst");
+
+		if (src.hasArray() && dst.hasArray()) {
+			transform(src.array(), src.arrayOffset() + srcOffset, dst.array(), dst.arrayOffset() + dstOffset, count);
+		} else if (isIdentity()) {
+			if (src != dst || srcOffset != dstOffset) {
+				for (int i = 0; i < count; i++) {
+					dst.put(dstOffset + i, src.get(srcOffset + i));
+				}
+			}
+		} else if (isTranslation()) {
+			translateImpl(src, srcOffset, dst, dstOffset, count);
+		} else if (isSkewPreserving()) {
+			scaleImpl(src, srcOffset, dst, dstOffset, count);
+		} else if (m00 == 0 && m11 == 0) {
+			swapImpl(src, srcOffset, dst, dstOffset, count);
+		} else {
+			affineImpl(src, srcOffset, dst, dstOffset, count);
+		}
+	}
+
+	// for each unit of the rect, in row major order, the unit that this transform maps onto it, as identified by its minimum coordinates
+	// a unit is located by inverse mapping its center; the transform must have an inverse
+	public void sourcesOf(IntRect rect, long[] dst, int dstOffset) {
+		if (rect == null) throw new IllegalArgumentException("null rect");
+		if (dst == null) throw new IllegalArgumentException("null dst");
+		checkRange(dst.length, dstOffset, unitCount(rect), "dst");
+		sourcesImpl(rect, dst, null, dstOffset);
+	}
+
+	// offsets are absolute, the position and limit of the buffer are not modified
+	public void sourcesOf(IntRect rect, LongBuffer dst, int dstOffset) {
+		if (rect == null) throw new IllegalArgumentException("null rect");
+		if (dst == null) throw new IllegalArgumentException("null dst");
+		if (dst.isReadOnly()) throw new IllegalArgumentException("read-only dst");
+		checkRange(dst.limit(), dstOffset, unitCount(rect), "dst");
+		if (dst.hasArray()) {
+			sourcesImpl(rect, dst.array(), null, dst.arrayOffset() + dstOffset);
+		} else {
+			sourcesImpl(rect, null, dst, dstOffset);
+		}
+	}
+
 	// this times t
 	public IntTransform preApply(IntTransform t) {
 		if (isIdentity()) return t;
 		if (t.isIdentity()) return this;
 
-		// TODO could apply many optimizing cases
-		return new IntTransform(
+		if (orientation != NOT_DIHEDRAL && t.orientation != NOT_DIHEDRAL) {
+			// the translation of t is transformed by this
+			long translation = transformImpl(IntPair.fromInts(t.m02, t.m12));
+			return dihedral(COMPOSITIONS[orientation][t.orientation], IntPair.xOf(translation), IntPair.yOf(translation));
+		}
+		// the properties of the product do not follow from those of its factors, eg. a shear composed with its inverse
+		return components(
 				m00 * t.m00 + m01 * t.m10,
 				m10 * t.m00 + m11 * t.m10,
 				m00 * t.m01 + m01 * t.m11,
 				m10 * t.m01 + m11 * t.m11,
 				m00 * t.m02 + m01 * t.m12 + m02,
-				m10 * t.m02 + m11 * t.m12 + m12,
-				flags & t.flags
+				m10 * t.m02 + m11 * t.m12 + m12
 				);
 	}
 
@@ -197,42 +369,184 @@ public final class IntTransform implements IntTransformable<IntTransform> {
 		return t.preApply(this);
 	}
 
+	// only transforms with a determinant of 1 or -1 have an integer inverse
+	public IntTransform inverse() {
+		if (orientation != NOT_DIHEDRAL) {
+			int inverse = INVERSES[orientation];
+			long translation = orient(inverse, -m02, -m12);
+			return dihedral(inverse, IntPair.xOf(translation), IntPair.yOf(translation));
+		}
+		long det = (long) m00 * m11 - (long) m10 * m01;
+		if (det != 1L && det != -1L) throw new IllegalStateException("no integer inverse");
+		// the adjugate divided by the determinant, which is its own reciprocal
+		int d = (int) det;
+		int i00 =  m11 * d;
+		int i10 = -m10 * d;
+		int i01 = -m01 * d;
+		int i11 =  m00 * d;
+		return new IntTransform(i00, i10, i01, i11, -(i00 * m02 + i01 * m12), -(i10 * m02 + i11 * m12), flags);
+	}
+
 	private long transformImpl(long pair) {
 		int x = IntPair.xOf(pair);
 		int y = IntPair.yOf(pair);
 
-		switch (flags & APPLY_MASK) {
-		// non-translations
+		if (orientation != NOT_DIHEDRAL) {
+			long oriented = orient(orientation, x, y);
+			return IntPair.fromInts(IntPair.xOf(oriented) + m02, IntPair.yOf(oriented) + m12);
+		}
 
-		case ORIGIN_PRESERVING | SKEW_PRESERVING | SCALE_PRESERVING :
-			break;
+		switch (flags & (ORIGIN_PRESERVING | SKEW_PRESERVING)) {
 		case ORIGIN_PRESERVING | SKEW_PRESERVING :
-			x = x * m00;
-			y = y * m11;
-			break;
-		case ORIGIN_PRESERVING | SCALE_PRESERVING :
+			return IntPair.fromInts(x * m00, y * m11);
 		case ORIGIN_PRESERVING :
-			x = x * m00 + y * m01;
-			y = x * m10 + y * m11;
-			break;
+			return IntPair.fromInts(x * m00 + y * m01, x * m10 + y * m11);
+		case SKEW_PRESERVING :
+			return IntPair.fromInts(x * m00 + m02, y * m11 + m12);
+		default :
+			return IntPair.fromInts(x * m00 + y * m01 + m02, x * m10 + y * m11 + m12);
+		}
+	}
 
-		// translations
+	private boolean isTranslation() {
+		return isSkewPreserving() && m00 == 1 && m11 == 1;
+	}
 
-		case SKEW_PRESERVING | SCALE_PRESERVING :
-			x = x + m02;
-			y = y + m12;
-			break;
-		case SKEW_PRESERVING :
-			x = x * m00 + m02;
-			y = y * m11 + m12;
-			break;
-		case SCALE_PRESERVING :
-			default :
-				x = x * m00 + y * m01 + m02;
-				y = x * m10 + y * m11 + m12;
-				break;
-		}
-		return IntPair.fromInts(x,y);
+	private static int unitCount(IntRect rect) {
+		long count = ((long) rect.maxX - rect.minX) * ((long) rect.maxY - rect.minY);
+		if (count > Integer.MAX_VALUE) throw new IllegalArgumentException("rect too large");
+		return (int) count;
+	}
+
+	private static void checkRange(int length, int offset, int count, String name) {
+		if (offset < 0) throw new IllegalArgumentException("negative " + name + "Offset");
+		if (offset > length - count) throw new IllegalArgumentException(name + " too short");
+	}
+
+	// writes to the array if there is one, otherwise to the buffer
+	private void sourcesImpl(IntRect rect, long[] array, LongBuffer buffer, int offset) {
+		IntTransform inverse = inverse();
+		int width = rect.width();
+		int height = rect.height();
+		// unit centers are mapped in doubled coordinates, where they are the odd points, and halved with rounding down
+		long cx = 2L * rect.minX + 1L;
+		long cy = 2L * rect.minY + 1L;
+		long x = inverse.m00 * cx + inverse.m01 * cy + 2L * inverse.m02;
+		long y = inverse.m10 * cx + inverse.m11 * cy + 2L * inverse.m12;
+		// the sources advance by a column of the inverse along each row, and by the other column down each row
+		long dxx = 2L * inverse.m00;
+		long dxy = 2L * inverse.m10;
+		long dyx = 2L * inverse.m01;
+		long dyy = 2L * inverse.m11;
+		int i = offset;
+		for (int row = 0; row < height; row++) {
+			long sx = x;
+			long sy = y;
+			for (int col = 0; col < width; col++) {
+				long source = IntPair.fromInts((int) (sx >> 1), (int) (sy >> 1));
+				if (array == null) {
+					buffer.put(i++, source);
+				} else {
+					array[i++] = source;
+				}
+				sx += dxx;
+				sy += dxy;
+			}
+			x += dyx;
+			y += dyy;
+		}
+	}
+
+	private void translateImpl(long[] src, int srcOffset, long[] dst, int dstOffset, int count) {
+		int dx = m02;
+		int dy = m12;
+		for (int i = 0; i < count; i++) {
+			long pair = src[srcOffset + i];
+			dst[dstOffset + i] = IntPair.fromInts(IntPair.xOf(pair) + dx, IntPair.yOf(pair) + dy);
+		}
+	}
+
+	private void scaleImpl(long[] src, int srcOffset, long[] dst, int dstOffset, int count) {
+		int sx = m00;
+		int sy = m11;
+		int dx = m02;
+		int dy = m12;
+		for (int i = 0; i < count; i++) {
+			long pair = src[srcOffset + i];
+			dst[dstOffset + i] = IntPair.fromInts(IntPair.xOf(pair) * sx + dx, IntPair.yOf(pair) * sy + dy);
+		}
+	}
+
+	private void swapImpl(long[] src, int srcOffset, long[] dst, int dstOffset, int count) {
+		int sx = m01;
+		int sy = m10;
+		int dx = m02;
+		int dy = m12;
+		for (int i = 0; i < count; i++) {
+			long pair = src[srcOffset + i];
+			dst[dstOffset + i] = IntPair.fromInts(IntPair.yOf(pair) * sx + dx, IntPair.xOf(pair) * sy + dy);
+		}
+	}
+
+	private void affineImpl(long[] src, int srcOffset, long[] dst, int dstOffset, int count) {
+		int m00 = this.m00;
+		int m10 = this.m10;
+		int m01 = this.m01;
+		int m11 = this.m11;
+		int m02 = this.m02;
+		int m12 = this.m12;
+		for (int i = 0; i < count; i++) {
+			long pair = src[srcOffset + i];
+			int x = IntPair.xOf(pair);
+			int y = IntPair.yOf(pair);
+			dst[dstOffset + i] = IntPair.fromInts(x * m00 + y * m01 + m02, x * m10 + y * m11 + m12);
+		}
+	}
+
+	private void translateImpl(LongBuffer src, int srcOffset, LongBuffer dst, int dstOffset, int count) {
+		int dx = m02;
+		int dy = m12;
+		for (int i = 0; i < count; i++) {
+			long pair = src.get(srcOffset + i);
+			dst.put(dstOffset + i, IntPair.fromInts(IntPair.xOf(pair) + dx, IntPair.yOf(pair) + dy));
+		}
+	}
+
+	private void scaleImpl(LongBuffer src, int srcOffset, LongBuffer dst, int dstOffset, int count) {
+		int sx = m00;
+		int sy = m11;
+		int dx = m02;
+		int dy = m12;
+		for (int i = 0; i < count; i++) {
+			long pair = src.get(srcOffset + i);
+			dst.put(dstOffset + i, IntPair.fromInts(IntPair.xOf(pair) * sx + dx, IntPair.yOf(pair) * sy + dy));
+		}
+	}
+
+	private void swapImpl(LongBuffer src, int srcOffset, LongBuffer dst, int dstOffset, int count) {
+		int sx = m01;
+		int sy = m10;
+		int dx = m02;
+		int dy = m12;
+		for (int i = 0; i < count; i++) {
+			long pair = src.get(srcOffset + i);
+			dst.put(dstOffset + i, IntPair.fromInts(IntPair.yOf(pair) * sx + dx, IntPair.xOf(pair) * sy + dy));
+		}
+	}
+
+	private void affineImpl(LongBuffer src, int srcOffset, LongBuffer dst, int dstOffset, int count) {
+		int m00 = this.m00;
+		int m10 = this.m10;
+		int m01 = this.m01;
+		int m11 = this.m11;
+		int m02 = this.m02;
+		int m12 = this.m12;
+		for (int i = 0; i < count; i++) {
+			long pair = src.get(srcOffset + i);
+			int x = IntPair.xOf(pair);
+			int y = IntPair.yOf(pair);
+			dst.put(dstOffset + i, IntPair.fromInts(x * m00 + y * m01 + m02, x * m10 + y * m11 + m12));
+		}
 	}
 
 }
@@ -130,6 +130,10 @@ public final class IntVector {
 		return isZero() ? coords : new IntCoords(coords.x + x, coords.y + y);
 	}
 
+	public long translatedPair(long pair) {
+		return IntPair.fromInts(IntPair.xOf(pair) + x, IntPair.yOf(pair) + y);
+	}
+
 	public IntRect translatedRect(IntRect rect) {
 		return isZero() ? rect : new IntRect(rect.minX + x, rect.minY + y, rect.maxX + x, rect.maxY + y);
 	}
@@ -152,6 +156,14 @@ public final class IntVector {
 		return this.x * that.x + this.y * that.y;
 	}
 
+	public int dot(int x, int y) {
+		return this.x * x + this.y * y;
+	}
+
+	public long toPair() {
+		return IntPair.fromInts(x, y);
+	}
+
 	// object methods
 
 	@Override